@@ -0,0 +1,317 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ *     desc  : asynchronous file io
+ * </pre>
+ * <p>Reads and writes of bytes run on {@link AsynchronousFileChannel}, whose completions are
+ * handled by the io threads. Appends and writes from an input stream block, so they run on
+ * threads of their own and never hold up the completions. The calling thread is never parked on
+ * disk. At most
+ * {@code maxInFlight} operations run at once; a call beyond that limit returns a future which is
+ * already completed exceptionally with {@link RejectedExecutionException}.</p>
+ * <p>Like {@link FileIOUtils}, a failed read completes with {@code null} and a failed write
+ * completes with {@code false}.</p>
+ */
+public final class AsyncFileIO implements Closeable {
+
+    /**
+     * The default max number of in-flight operations.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ExecutorService mExecutor;
+    private final ExecutorService mBlockingExecutor;
+    private final Semaphore mPermits;
+    private final int mMaxInFlight;
+    private final boolean mShared;
+
+    /**
+     * Create the asynchronous file io.
+     *
+     * @param maxInFlight The max number of in-flight operations.
+     * @param ioThreads   The number of io threads.
+     */
+    public AsyncFileIO(final int maxInFlight, final int ioThreads) {
+        this(maxInFlight, ioThreads, false);
+    }
+
+    private AsyncFileIO(final int maxInFlight, final int ioThreads, final boolean shared) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight <= 0: " + maxInFlight);
+        if (ioThreads <= 0) throw new IllegalArgumentException("ioThreads <= 0: " + ioThreads);
+        mMaxInFlight = maxInFlight;
+        mPermits = new Semaphore(maxInFlight);
+        mShared = shared;
+        mExecutor = Executors.newFixedThreadPool(ioThreads, newThreadFactory("async-file-io-"));
+        // bounded by the in-flight permits, so a blocking task never waits for a thread
+        mBlockingExecutor = Executors.newCachedThreadPool(newThreadFactory("async-file-io-blocking-"));
+    }
+
+    /**
+     * Return the shared instance, which allows {@link #DEFAULT_MAX_IN_FLIGHT} in-flight
+     * operations on one io thread per processor.
+     *
+     * @return the shared instance
+     */
+    public static AsyncFileIO getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Return the bytes in file.
+     *
+     * @param file The file.
+     * @return the future of bytes in file, {@code null} if it is larger than an array, read such a
+     * file by {@link MappedFileReader}
+     */
+    public CompletableFuture<byte[]> readFile2Bytes(final File file) {
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (!acquire(future)) return future;
+        if (file == null || !file.isFile()) {
+            complete(future, null);
+            return future;
+        }
+        AsynchronousFileChannel opened = null;
+        try {
+            opened = AsynchronousFileChannel.open(file.toPath(),
+                    Collections.singleton(StandardOpenOption.READ), mExecutor);
+            final AsynchronousFileChannel channel = opened;
+            long size = channel.size();
+            if (size > MAX_ARRAY_SIZE) {// too large for one array then return null
+                CloseUtils.closeIO(channel);
+                complete(future, null);
+                return future;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            channel.read(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer result, Void attachment) {
+                    if (result != -1 && buffer.hasRemaining()) {
+                        try {
+                            channel.read(buffer, buffer.position(), null, this);
+                        } catch (RuntimeException e) {// e.g. shut down by close
+                            failed(e, attachment);
+                        }
+                        return;
+                    }
+                    CloseUtils.closeIO(channel);
+                    complete(future, buffer.hasRemaining()
+                            ? Arrays.copyOf(buffer.array(), buffer.position())
+                            : buffer.array());
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    exc.printStackTrace();
+                    CloseUtils.closeIO(channel);
+                    complete(future, null);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            CloseUtils.closeIO(opened);
+            complete(future, null);
+        }
+        return future;
+    }
+
+    /**
+     * Write file from bytes.
+     * <p>An append is written on a blocking thread through a channel opened with
+     * {@link StandardOpenOption#APPEND}, which {@link AsynchronousFileChannel} doesn't support, so
+     * concurrent appends to one file never overwrite each other.</p>
+     *
+     * @param file   The file.
+     * @param bytes  The bytes.
+     * @param append True to append, false otherwise.
+     * @return the future of {@code true}: success<br>{@code false}: fail
+     */
+    public CompletableFuture<Boolean> writeFileFromBytes(final File file,
+                                                         final byte[] bytes,
+                                                         final boolean append) {
+        if (append) {
+            return submit(new Supplier<Boolean>() {
+                @Override
+                public Boolean get() {
+                    return appendFileFromBytes(file, bytes);
+                }
+            }, false);
+        }
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (!acquire(future)) return future;
+        if (file == null || bytes == null || !FileUtils.createOrExistsDir(file.getParentFile())) {
+            complete(future, false);
+            return future;
+        }
+        AsynchronousFileChannel opened = null;
+        try {
+            opened = AsynchronousFileChannel.open(file.toPath(), EnumSet.of(StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), mExecutor);
+            final AsynchronousFileChannel channel = opened;
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            channel.write(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer result, Void attachment) {
+                    if (buffer.hasRemaining()) {
+                        try {
+                            channel.write(buffer, buffer.position(), null, this);
+                        } catch (RuntimeException e) {// e.g. shut down by close
+                            failed(e, attachment);
+                        }
+                        return;
+                    }
+                    CloseUtils.closeIO(channel);
+                    complete(future, true);
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    exc.printStackTrace();
+                    CloseUtils.closeIO(channel);
+                    complete(future, false);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            CloseUtils.closeIO(opened);
+            complete(future, false);
+        }
+        return future;
+    }
+
+    /**
+     * Write file from input stream on a blocking thread.
+     *
+     * @param file   The file.
+     * @param is     The input stream, which is closed even if the write is rejected.
+     * @param append True to append, false otherwise.
+     * @return the future of {@code true}: success<br>{@code false}: fail
+     */
+    public CompletableFuture<Boolean> writeFileFromIS(final File file,
+                                                      final InputStream is,
+                                                      final boolean append) {
+        CompletableFuture<Boolean> future = submit(new Supplier<Boolean>() {
+            @Override
+            public Boolean get() {
+                return FileIOUtils.writeFileFromIS(file, is, append);
+            }
+        }, false);
+        // only a rejection completes exceptionally, then the task never closes the stream
+        if (future.isCompletedExceptionally()) CloseUtils.closeIO(is);
+        return future;
+    }
+
+    /**
+     * Return the number of in-flight operations.
+     *
+     * @return the number of in-flight operations
+     */
+    public int getInFlightCount() {
+        return mMaxInFlight - mPermits.availablePermits();
+    }
+
+    /**
+     * Shut down the io threads, running operations are finished first.
+     * <p>The shared instance of {@link #getDefault()} is never shut down.</p>
+     */
+    @Override
+    public void close() {
+        if (mShared) return;
+        mExecutor.shutdown();
+        mBlockingExecutor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(final Supplier<T> task, final T failure) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (!acquire(future)) return future;
+        try {
+            mBlockingExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    T result = failure;
+                    try {
+                        result = task.get();
+                    } finally {
+                        complete(future, result);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mPermits.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static boolean appendFileFromBytes(final File file, final byte[] bytes) {
+        if (file == null || bytes == null || !FileUtils.createOrExistsDir(file.getParentFile())) return false;
+        FileChannel fc = null;
+        try {
+            fc = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                fc.write(buffer);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            CloseUtils.closeIO(fc);
+        }
+    }
+
+    private boolean acquire(final CompletableFuture<?> future) {
+        if (mPermits.tryAcquire()) return true;
+        future.completeExceptionally(new RejectedExecutionException(
+                "more than " + mMaxInFlight + " in-flight operations"));
+        return false;
+    }
+
+    private <T> void complete(final CompletableFuture<T> future, final T result) {
+        mPermits.release();
+        future.complete(result);
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static final class DefaultHolder {
+        private static final AsyncFileIO INSTANCE =
+                new AsyncFileIO(DEFAULT_MAX_IN_FLIGHT, Runtime.getRuntime().availableProcessors(), true);
+    }
+}
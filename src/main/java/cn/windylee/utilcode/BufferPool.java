@@ -0,0 +1,201 @@
+package cn.windylee.utilcode;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     desc  : pool of reusable io buffers
+ * </pre>
+ * <p>Buffers are grouped into power-of-two size classes from 4 KB to 1 MB, and every class
+ * keeps its own lock-free queue of heap arrays and of direct buffers. A request is rounded
+ * up to its class, so an acquired buffer may be larger than asked; a request above 1 MB is
+ * always allocated and never retained. Released buffers are dropped once the pool retains
+ * more than its cap.</p>
+ */
+public final class BufferPool {
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+    private static final int CLASS_COUNT = MAX_SHIFT - MIN_SHIFT + 1;
+
+    private static final BufferPool DEFAULT = new BufferPool(32L * 1024 * 1024);
+
+    private final long mMaxRetainedBytes;
+    private final Queue<byte[]>[] mHeapQueues;
+    private final Queue<ByteBuffer>[] mDirectQueues;
+    private final AtomicLong mRetainedBytes = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mOutstanding = new AtomicLong();
+
+    /**
+     * Create a pool.
+     *
+     * @param maxRetainedBytes The max bytes which the pool retains.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(final long maxRetainedBytes) {
+        mMaxRetainedBytes = maxRetainedBytes;
+        mHeapQueues = new Queue[CLASS_COUNT];
+        mDirectQueues = new Queue[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; ++i) {
+            mHeapQueues[i] = new ConcurrentLinkedQueue<>();
+            mDirectQueues[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Return the pool shared by the utils, which retains at most 32 MB.
+     *
+     * @return the pool shared by the utils
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Acquire a heap buffer.
+     *
+     * @param size The min size of buffer.
+     * @return the buffer whose length is at least {@code size}
+     */
+    public byte[] acquire(final int size) {
+        mOutstanding.incrementAndGet();
+        int index = classIndex(size);
+        if (index >= 0) {
+            byte[] buffer = mHeapQueues[index].poll();
+            if (buffer != null) {
+                mRetainedBytes.addAndGet(-buffer.length);
+                mHits.incrementAndGet();
+                return buffer;
+            }
+        }
+        mMisses.incrementAndGet();
+        return new byte[index >= 0 ? 1 << (index + MIN_SHIFT) : size];
+    }
+
+    /**
+     * Release the heap buffer to pool.
+     * <p>An array whose length no acquisition returns, so it wasn't acquired from pool, is
+     * ignored.</p>
+     *
+     * @param buffer The buffer acquired from pool.
+     */
+    public void release(final byte[] buffer) {
+        if (buffer == null || !isAcquirable(buffer.length)) return;
+        releaseOutstanding();
+        int index = exactClassIndex(buffer.length);
+        if (index < 0 || !reserve(buffer.length)) return;
+        mHeapQueues[index].offer(buffer);
+    }
+
+    /**
+     * Acquire a direct buffer.
+     *
+     * @param size The min size of buffer.
+     * @return the cleared buffer whose limit is {@code size}
+     */
+    public ByteBuffer acquireDirect(final int size) {
+        mOutstanding.incrementAndGet();
+        int index = classIndex(size);
+        ByteBuffer buffer = null;
+        if (index >= 0) {
+            buffer = mDirectQueues[index].poll();
+            if (buffer != null) {
+                mRetainedBytes.addAndGet(-buffer.capacity());
+                mHits.incrementAndGet();
+            }
+        }
+        if (buffer == null) {
+            mMisses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(index >= 0 ? 1 << (index + MIN_SHIFT) : size);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Release the direct buffer to pool.
+     * <p>A heap buffer, or one whose capacity no acquisition returns, is ignored.</p>
+     *
+     * @param buffer The buffer acquired from pool.
+     */
+    public void releaseDirect(final ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || !isAcquirable(buffer.capacity())) return;
+        releaseOutstanding();
+        int index = exactClassIndex(buffer.capacity());
+        if (index < 0 || !reserve(buffer.capacity())) return;
+        mDirectQueues[index].offer(buffer);
+    }
+
+    /**
+     * Return the number of acquisitions served from pool.
+     *
+     * @return the number of acquisitions served from pool
+     */
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * Return the number of acquisitions which allocated a new buffer.
+     *
+     * @return the number of acquisitions which allocated a new buffer
+     */
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * Return the number of buffers acquired but not released yet.
+     *
+     * @return the number of buffers acquired but not released yet
+     */
+    public long getOutstandingCount() {
+        return mOutstanding.get();
+    }
+
+    /**
+     * Return the bytes retained by pool.
+     *
+     * @return the bytes retained by pool
+     */
+    public long getRetainedBytes() {
+        return mRetainedBytes.get();
+    }
+
+    private void releaseOutstanding() {
+        // a foreign buffer of a class size can't be told apart, so never go below zero
+        while (true) {
+            long outstanding = mOutstanding.get();
+            if (outstanding <= 0 || mOutstanding.compareAndSet(outstanding, outstanding - 1)) return;
+        }
+    }
+
+    private boolean reserve(final int size) {
+        while (true) {
+            long retained = mRetainedBytes.get();
+            if (retained + size > mMaxRetainedBytes) return false;
+            if (mRetainedBytes.compareAndSet(retained, retained + size)) return true;
+        }
+    }
+
+    private static int classIndex(final int size) {
+        if (size <= 1 << MIN_SHIFT) return 0;
+        if (size > 1 << MAX_SHIFT) return -1;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private static boolean isAcquirable(final int size) {
+        return exactClassIndex(size) >= 0 || size > 1 << MAX_SHIFT;
+    }
+
+    private static int exactClassIndex(final int size) {
+        int index = classIndex(size);
+        return index >= 0 && 1 << (index + MIN_SHIFT) == size ? index : -1;
+    }
+}
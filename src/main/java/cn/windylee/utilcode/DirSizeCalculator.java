@@ -0,0 +1,304 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ *     desc  : compute the length of directory in parallel
+ * </pre>
+ * <p>Every directory is read by one {@link RecursiveTask} on a {@link ForkJoinPool}, which sums
+ * the lengths of its files from the attributes of the directory walk, so no file is stat again.
+ * A subdirectory is forked as a task of its own while fewer than {@code threshold} tasks are
+ * queued beyond what idle threads can steal, otherwise it is computed inline, so tiny
+ * directories don't pay for a task each.</p>
+ * <p>Symbolic links are not followed, like {@code du}, so the length of a link is its own. A
+ * calculation can be cancelled or bounded by a timeout, then the partial result is returned.
+ * Calculations may run at once, each one is cancelled on its own.</p>
+ */
+public final class DirSizeCalculator {
+
+    /**
+     * The default threshold of surplus queued tasks, below which subdirectories are forked.
+     */
+    public static final int DEFAULT_THRESHOLD = 3;
+
+    private final int mParallelism;
+    private final int mThreshold;
+    private final Set<Result> mRunning = ConcurrentHashMap.newKeySet();
+    private volatile Result mLastResult;
+
+    /**
+     * Create a calculator with default threshold.
+     *
+     * @param parallelism The number of threads which read directories.
+     */
+    public DirSizeCalculator(final int parallelism) {
+        this(parallelism, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Create a calculator.
+     *
+     * @param parallelism The number of threads which read directories.
+     * @param threshold   The threshold of surplus queued tasks, below which subdirectories are forked.
+     */
+    public DirSizeCalculator(final int parallelism, final int threshold) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism <= 0: " + parallelism);
+        if (threshold < 0) throw new IllegalArgumentException("threshold < 0: " + threshold);
+        mParallelism = parallelism;
+        mThreshold = threshold;
+    }
+
+    /**
+     * Compute the length of directory.
+     *
+     * @param dir The directory.
+     * @return the result, {@code null} if fail
+     */
+    public Result calculate(final File dir) {
+        return calculate(dir, 0);
+    }
+
+    /**
+     * Compute the length of directory within the timeout.
+     * <p>On timeout the partial result is returned at once, without waiting for a directory
+     * read which may hang, e.g. on a network mount; such a read may still add to the counters of
+     * the result until it returns.</p>
+     *
+     * @param dir           The directory.
+     * @param timeoutMillis The timeout in milliseconds, 0 for no timeout.
+     * @return the result, which is incomplete if cancelled or timed out, {@code null} if fail
+     */
+    public Result calculate(final File dir, final long timeoutMillis) {
+        if (dir == null || !dir.isDirectory() || timeoutMillis < 0) return null;
+        long startTime = System.currentTimeMillis();
+        Result result = new Result();
+        mRunning.add(result);
+        ForkJoinPool pool = new ForkJoinPool(mParallelism);
+        try {
+            ForkJoinTask<Long> task = pool.submit(new DirTask(dir.toPath(), 0, result));
+            try {
+                if (timeoutMillis == 0) {
+                    task.get();
+                } else {
+                    task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                // a cancel which came after the last entry doesn't make the walk incomplete
+                result.complete = !result.stopped;
+            } catch (TimeoutException e) {
+                result.cancelled = true;// the tasks stop at their next entry
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancelled = true;
+            return null;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            mRunning.remove(result);
+            mLastResult = result;
+            pool.shutdownNow();
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+        }
+    }
+
+    /**
+     * Cancel the running calculations, which then return their partial results.
+     * <p>A calculation which starts later isn't cancelled.</p>
+     */
+    public void cancel() {
+        for (Result result : mRunning) {
+            result.cancelled = true;
+        }
+    }
+
+    /**
+     * Return whether the last finished calculation was cancelled or timed out.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isCancelled() {
+        Result last = mLastResult;
+        return last != null && !last.complete;
+    }
+
+    private final class DirTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final int depth;
+        private final Result result;
+
+        private DirTask(final Path dir, final int depth, final Result result) {
+            this.dir = dir;
+            this.depth = depth;
+            this.result = result;
+        }
+
+        @Override
+        protected Long compute() {
+            if (result.cancelled) {
+                result.stopped = true;
+                return 0L;
+            }
+            final List<DirTask> forked = new ArrayList<>();
+            final long[] length = {0};
+            try {
+                // depth 1 passes every entry to visitFile with the attributes of the walk
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (result.cancelled) {
+                            result.stopped = true;
+                            return FileVisitResult.TERMINATE;
+                        }
+                        if (attrs.isDirectory()) {
+                            result.dirCount.increment();
+                            DirTask task = new DirTask(file, depth + 1, result);
+                            if (getSurplusQueuedTaskCount() < mThreshold) {
+                                task.fork();
+                                forked.add(task);
+                            } else {
+                                length[0] += task.compute();
+                            }
+                        } else {
+                            result.fileCount.increment();
+                            result.length.add(attrs.size());
+                            length[0] += attrs.size();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        result.failureCount.increment();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                result.failureCount.increment();
+            }
+            for (DirTask task : forked) {
+                length[0] += task.join();
+            }
+            if (depth == 1) result.subDirLengths.put(dir.toFile(), length[0]);
+            return length[0];
+        }
+    }
+
+    /**
+     * The result of computing the length of directory.
+     */
+    public static final class Result {
+
+        private final LongAdder fileCount = new LongAdder();
+        private final LongAdder dirCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder length = new LongAdder();
+        private final Map<File, Long> subDirLengths = new ConcurrentHashMap<>();
+        private volatile boolean cancelled;
+        private volatile boolean stopped;// a task skipped entries because of cancel
+        private volatile boolean complete;
+        private volatile long elapsedMillis;
+
+        private Result() {
+        }
+
+        /**
+         * Return the length of directory.
+         *
+         * @return the length of directory
+         */
+        public long getLength() {
+            return length.sum();
+        }
+
+        /**
+         * Return the number of files, including symbolic links.
+         *
+         * @return the number of files
+         */
+        public long getFileCount() {
+            return fileCount.sum();
+        }
+
+        /**
+         * Return the number of subdirectories at any depth.
+         *
+         * @return the number of subdirectories
+         */
+        public long getDirCount() {
+            return dirCount.sum();
+        }
+
+        /**
+         * Return the number of files or directories which couldn't be read.
+         *
+         * @return the number of files or directories which couldn't be read
+         */
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        /**
+         * Return the length of every direct subdirectory, sorted by path.
+         *
+         * @return the length of every direct subdirectory
+         */
+        public Map<File, Long> getSubDirLengths() {
+            return new TreeMap<>(subDirLengths);
+        }
+
+        /**
+         * Return whether the whole directory was computed, neither cancelled nor timed out.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Return the elapsed time in milliseconds.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{length=" + getLength()
+                    + ", files=" + getFileCount()
+                    + ", dirs=" + getDirCount()
+                    + ", failures=" + getFailureCount()
+                    + ", complete=" + complete
+                    + ", elapsedMillis=" + elapsedMillis + "}";
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     desc  : track the length of directory incrementally
+ * </pre>
+ * <p>The tree is scanned once into a node per directory, which keeps the lengths of its own files
+ * and the total length of its subtree, and every directory is registered to a
+ * {@link WatchService}. A background thread applies the create, modify and delete events to the
+ * nodes, so a query of length is a lookup. When events are lost by overflow, the subtree of the
+ * directory is scanned again.</p>
+ * <p>Like {@link DirSizeCalculator}, symbolic links are not followed. The lengths lag the file
+ * system by the latency of its watch service.</p>
+ */
+public final class DirSizeTracker implements Closeable {
+
+    private final Path mRoot;
+    private final WatchService mWatchService;
+    private final Map<Path, Node> mNodes = new HashMap<>();
+    private final Map<WatchKey, Node> mKeys = new HashMap<>();
+    private final Thread mWatcher;
+    private long mRescanCount;
+    private volatile boolean mClosed;
+
+    private DirSizeTracker(final Path root, final WatchService watchService) {
+        mRoot = root;
+        mWatchService = watchService;
+        mWatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchLoop();
+            }
+        }, "dir-size-tracker-" + root.getFileName());
+        mWatcher.setDaemon(true);
+    }
+
+    /**
+     * Scan the directory and start tracking it.
+     *
+     * @param dir The directory.
+     * @return the tracker, {@code null} if fail
+     */
+    public static DirSizeTracker open(final File dir) {
+        if (dir == null || !dir.isDirectory()) return null;
+        WatchService watchService = null;
+        try {
+            Path root = dir.toPath().toAbsolutePath().normalize();
+            watchService = root.getFileSystem().newWatchService();
+            DirSizeTracker tracker = new DirSizeTracker(root, watchService);
+            synchronized (tracker) {
+                tracker.scan(null, root);
+            }
+            if (tracker.mNodes.get(root) == null) throw new IOException("fail to read " + dir);
+            tracker.mWatcher.start();
+            return tracker;
+        } catch (IOException e) {
+            e.printStackTrace();
+            CloseUtils.closeIO(watchService);
+            return null;
+        }
+    }
+
+    /**
+     * Return the length of the tracked directory.
+     *
+     * @return the length of the tracked directory
+     */
+    public synchronized long getLength() {
+        Node root = mNodes.get(mRoot);
+        return root == null ? -1 : root.total;
+    }
+
+    /**
+     * Return the length of a directory in the tracked tree.
+     *
+     * @param dir The directory.
+     * @return the length of directory, {@code -1} if it isn't tracked
+     */
+    public synchronized long getLength(final File dir) {
+        if (dir == null) return -1;
+        Node node = mNodes.get(dir.toPath().toAbsolutePath().normalize());
+        return node == null ? -1 : node.total;
+    }
+
+    /**
+     * Return the number of tracked directories.
+     *
+     * @return the number of tracked directories
+     */
+    public synchronized int getDirCount() {
+        return mNodes.size();
+    }
+
+    /**
+     * Return the number of rescans caused by lost events.
+     *
+     * @return the number of rescans caused by lost events
+     */
+    public synchronized long getRescanCount() {
+        return mRescanCount;
+    }
+
+    /**
+     * Stop tracking.
+     */
+    @Override
+    public void close() {
+        mClosed = true;
+        CloseUtils.closeIO(mWatchService);
+        try {
+            mWatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void watchLoop() {
+        while (!mClosed) {
+            WatchKey key;
+            try {
+                key = mWatchService.take();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                Node node = mKeys.get(key);
+                if (node != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescan(node);
+                            break;
+                        }
+                        refresh(node, (Path) event.context());
+                    }
+                }
+                if (!key.reset()) mKeys.remove(key);// the directory is gone
+            }
+        }
+    }
+
+    private void rescan(final Node node) {
+        mRescanCount++;
+        Node parent = node.parent;
+        remove(node);
+        try {
+            scan(parent, node.dir);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void refresh(final Node node, final Path name) {
+        Path path = node.dir.resolve(name);
+        BasicFileAttributes attrs = readAttributes(path);
+        boolean isDir = attrs != null && attrs.isDirectory();
+        Node child = mNodes.get(path);
+        if (child != null && !isDir) remove(child);
+        if (isDir && child == null) {
+            try {
+                scan(node, path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // the event may repeat what the scan has seen, so set the length instead of adding it
+        String key = name.toString();
+        Long old = node.files.get(key);
+        long oldLength = old == null ? 0 : old;
+        if (attrs != null && !isDir) {
+            node.files.put(key, attrs.size());
+            addLength(node, attrs.size() - oldLength);
+        } else if (old != null) {
+            node.files.remove(key);
+            addLength(node, -oldLength);
+        }
+    }
+
+    private void scan(final Node parent, final Path dir) throws IOException {
+        final Map<Path, Node> scanned = new HashMap<>();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+                Node owner = subDir.equals(dir) ? parent : scanned.get(subDir.getParent());
+                Node node = new Node(subDir, owner);
+                if (owner != null) owner.children.add(node);
+                mNodes.put(subDir, node);
+                scanned.put(subDir, node);
+                try {
+                    node.key = subDir.register(mWatchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    mKeys.put(node.key, node);
+                } catch (IOException e) {// counted once but not updated, e.g. out of watches
+                    e.printStackTrace();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Node node = scanned.get(file.getParent());
+                if (node != null && !attrs.isDirectory()) {
+                    node.files.put(file.getFileName().toString(), attrs.size());
+                    addLength(node, attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;// unreadable, skip it
+            }
+        });
+    }
+
+    private void remove(final Node node) {
+        List<Node> stack = new ArrayList<>();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            Node one = stack.remove(stack.size() - 1);
+            mNodes.remove(one.dir);
+            if (one.key != null) {
+                one.key.cancel();
+                mKeys.remove(one.key);
+            }
+            stack.addAll(one.children);
+        }
+        if (node.parent != null) {
+            node.parent.children.remove(node);
+            addLength(node.parent, -node.total);
+        }
+    }
+
+    private static void addLength(Node node, final long delta) {
+        if (delta == 0) return;
+        while (node != null) {
+            node.total += delta;
+            node = node.parent;
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {// gone
+            return null;
+        }
+    }
+
+    private static final class Node {
+
+        private final Path dir;
+        private final Node parent;
+        private final List<Node> children = new ArrayList<>();
+        private final Map<String, Long> files = new HashMap<>();
+        private WatchKey key;
+        private long total;
+
+        private Node(final Path dir, final Node parent) {
+            this.dir = dir;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     desc  : read-through cache of file contents
+ * </pre>
+ * <p>Contents are keyed by canonical path, so different paths of one file share an entry. Every
+ * get checks the last modified time and length of file, and reads the file again once either has
+ * changed. The total bytes of entries are bounded, and the least recently used entries are evicted
+ * first; a file larger than the bound is read through without being cached.</p>
+ * <p>The cache is thread-safe. Returned arrays are shared by all callers and must not be modified.</p>
+ */
+public final class FileContentCache {
+
+    private final long mMaxBytes;
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSize;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxBytes The max bytes of cached contents.
+     */
+    public FileContentCache(final long maxBytes) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0: " + maxBytes);
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Return the bytes in file.
+     *
+     * @param filePath The path of file.
+     * @return the bytes in file, which must not be modified
+     */
+    public byte[] getBytes(final String filePath) {
+        return isSpace(filePath) ? null : getBytes(new File(filePath));
+    }
+
+    /**
+     * Return the bytes in file, from cache if the file hasn't changed.
+     *
+     * @param file The file.
+     * @return the bytes in file, which must not be modified
+     */
+    public byte[] getBytes(final File file) {
+        Entry entry = getEntry(file);
+        return entry == null ? null : entry.bytes;
+    }
+
+    /**
+     * Return the string in file.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return the string in file
+     */
+    public String getString(final String filePath, final String charsetName) {
+        return isSpace(filePath) ? null : getString(new File(filePath), charsetName);
+    }
+
+    /**
+     * Return the string in file, from cache if the file hasn't changed.
+     * <p>The string decoded by the last charset is cached along with the bytes.</p>
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return the string in file
+     */
+    public String getString(final File file, final String charsetName) {
+        Entry entry = getEntry(file);
+        if (entry == null) return null;
+        String key = isSpace(charsetName) ? "" : charsetName;
+        synchronized (this) {
+            if (key.equals(entry.charsetName) && entry.string != null) return entry.string;
+        }
+        String string;
+        try {
+            string = key.isEmpty() ? new String(entry.bytes) : new String(entry.bytes, charsetName);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return "";
+        }
+        synchronized (this) {
+            if (mEntries.get(entry.path) == entry) {// still cached, count the string into its weight
+                mSize -= entry.weight();
+                entry.charsetName = key;
+                entry.string = string;
+                mSize += entry.weight();
+                trimToSize();
+            }
+        }
+        return string;
+    }
+
+    /**
+     * Remove the cached content of file.
+     *
+     * @param file The file.
+     */
+    public synchronized void invalidate(final File file) {
+        String path = getCanonicalPath(file);
+        if (path == null) return;
+        Entry entry = mEntries.remove(path);
+        if (entry != null) mSize -= entry.weight();
+    }
+
+    /**
+     * Remove all cached contents.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Return the bytes of cached contents.
+     *
+     * @return the bytes of cached contents
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    /**
+     * Return the number of cached files.
+     *
+     * @return the number of cached files
+     */
+    public synchronized int getEntryCount() {
+        return mEntries.size();
+    }
+
+    /**
+     * Return the number of gets served from cache.
+     *
+     * @return the number of gets served from cache
+     */
+    public synchronized long getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * Return the number of gets which read the file.
+     *
+     * @return the number of gets which read the file
+     */
+    public synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    /**
+     * Return the number of evicted entries.
+     *
+     * @return the number of evicted entries
+     */
+    public synchronized long getEvictionCount() {
+        return mEvictions;
+    }
+
+    /**
+     * Return the ratio of gets served from cache.
+     *
+     * @return the ratio of gets served from cache, from 0 to 1
+     */
+    public synchronized double getHitRate() {
+        long total = mHits + mMisses;
+        return total == 0 ? 0 : (double) mHits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FileContentCache{size=" + mSize + "/" + mMaxBytes
+                + ", entries=" + mEntries.size()
+                + ", hits=" + mHits
+                + ", misses=" + mMisses
+                + ", evictions=" + mEvictions + "}";
+    }
+
+    private Entry getEntry(final File file) {
+        String path = getCanonicalPath(file);
+        if (path == null || !file.isFile()) return null;
+        // stat before reading, so a change during the read is caught by the next get
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (this) {
+            Entry entry = mEntries.get(path);
+            if (entry != null && entry.lastModified == lastModified && entry.bytes.length == length) {
+                mHits++;
+                return entry;
+            }
+            mMisses++;
+        }
+        byte[] bytes = FileIOUtils.readFile2BytesByChannel(file);
+        if (bytes == null) return null;
+        Entry entry = new Entry(path, lastModified, bytes);
+        synchronized (this) {
+            Entry old = mEntries.remove(path);
+            if (old != null) mSize -= old.weight();
+            if (entry.weight() <= mMaxBytes) {
+                mEntries.put(path, entry);
+                mSize += entry.weight();
+                trimToSize();
+            }
+        }
+        return entry;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().weight();
+            iterator.remove();
+            mEvictions++;
+        }
+    }
+
+    private static String getCanonicalPath(final File file) {
+        if (file == null) return null;
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static boolean isSpace(final String s) {
+        if (s == null) return true;
+        for (int i = 0, len = s.length(); i < len; ++i) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final String path;
+        private final long lastModified;
+        private final byte[] bytes;
+        private String charsetName;
+        private String string;
+
+        private Entry(final String path, final long lastModified, final byte[] bytes) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.bytes = bytes;
+        }
+
+        private long weight() {
+            return bytes.length + (string == null ? 0 : 2L * string.length());
+        }
+    }
+}
@@ -1,25 +1,49 @@
 package cn.windylee.utilcode;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * <pre>
@@ -31,7 +55,20 @@ import java.util.List;
  */
 public final class FileIOUtils {
 
-    private static int sBufferSize = 8192;
+    private static final long TRANSFER_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static volatile int sBufferSize = IoOptions.DEFAULT_BUFFER_SIZE;
+
+    private static final int MAX_POOLED_CODERS = 16;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final Queue<Deflater> sGzipDeflaters = new ConcurrentLinkedQueue<>();
+    private static final Queue<Deflater> sZlibDeflaters = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> sGzipInflaters = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> sZlibInflaters = new ConcurrentLinkedQueue<>();
 
     private FileIOUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
@@ -84,20 +121,61 @@ public final class FileIOUtils {
     public static boolean writeFileFromIS(final File file,
                                           final InputStream is,
                                           final boolean append) {
-        if (!createOrExistsFile(file) || is == null) return false;
-        OutputStream os = null;
+        return writeFileFromIS(file, is, defaultOptions(append));
+    }
+
+    /**
+     * Write file from input stream.
+     *
+     * @param filePath The path of file.
+     * @param is       The input stream.
+     * @param options  The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromIS(final String filePath,
+                                          final InputStream is,
+                                          final IoOptions options) {
+        return writeFileFromIS(getFileByPath(filePath), is, options);
+    }
+
+    /**
+     * Write file from input stream.
+     * <p>Uses the buffer size, append and force of options.</p>
+     *
+     * @param file    The file.
+     * @param is      The input stream.
+     * @param options The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromIS(final File file,
+                                          final InputStream is,
+                                          final IoOptions options) {
+        if (options != null && options.isAtomic() && is != null) {
+            return writeFileAtomic(file, options, new OnAtomicWriteListener() {
+                @Override
+                public boolean onWrite(File tempFile, IoOptions tempOptions) {
+                    return writeFileFromIS(tempFile, is, tempOptions);
+                }
+            });
+        }
+        if (!createOrExistsFile(file) || is == null || options == null) return false;
+        FileOutputStream os = null;
+        int bufferSize = options.getBufferSize();
+        byte[] data = BufferPool.getDefault().acquire(bufferSize);
         try {
-            os = new BufferedOutputStream(new FileOutputStream(file, append));
-            byte data[] = new byte[sBufferSize];
+            // the data is already written in chunks, so no extra BufferedOutputStream is needed
+            os = new FileOutputStream(file, options.isAppend());
             int len;
-            while ((len = is.read(data, 0, sBufferSize)) != -1) {
+            while ((len = is.read(data, 0, bufferSize)) != -1) {
                 os.write(data, 0, len);
             }
+            if (options.isForce()) os.getFD().sync();
             return true;
         } catch (IOException e) {
             e.printStackTrace();
             return false;
         } finally {
+            BufferPool.getDefault().release(data);
             try {
                 is.close();
             } catch (IOException e) {
@@ -113,6 +191,63 @@ public final class FileIOUtils {
         }
     }
 
+    /**
+     * Write file from file by channel.
+     * <p>The bytes are moved by {@link FileChannel#transferTo} so they never pass through the heap.</p>
+     *
+     * @param filePath    The path of file.
+     * @param srcFilePath The path of source file.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromFileByChannel(final String filePath, final String srcFilePath) {
+        return writeFileFromFileByChannel(getFileByPath(filePath), getFileByPath(srcFilePath));
+    }
+
+    /**
+     * Write file from file by channel.
+     * <p>The bytes are moved by {@link FileChannel#transferTo} so they never pass through the heap.</p>
+     *
+     * @param file    The file.
+     * @param srcFile The source file.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromFileByChannel(final File file, final File srcFile) {
+        if (!isFileExists(srcFile) || !createOrExistsFile(file)) return false;
+        FileChannel in = null;
+        FileChannel out = null;
+        try {
+            in = new FileInputStream(srcFile).getChannel();
+            out = new FileOutputStream(file, false).getChannel();
+            long size = in.size();
+            long position = 0;
+            // transferTo may move fewer bytes than asked, so loop until the whole file is done
+            while (position < size) {
+                long count = in.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, size - position), out);
+                if (count <= 0) break;
+                position += count;
+            }
+            return position == size;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Write file from bytes by stream.
      *
@@ -160,19 +295,58 @@ public final class FileIOUtils {
     public static boolean writeFileFromBytesByStream(final File file,
                                                      final byte[] bytes,
                                                      final boolean append) {
-        if (bytes == null || !createOrExistsFile(file)) return false;
-        BufferedOutputStream bos = null;
+        return writeFileFromBytesByStream(file, bytes, defaultOptions(append));
+    }
+
+    /**
+     * Write file from bytes by stream.
+     *
+     * @param filePath The path of file.
+     * @param bytes    The bytes.
+     * @param options  The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesByStream(final String filePath,
+                                                     final byte[] bytes,
+                                                     final IoOptions options) {
+        return writeFileFromBytesByStream(getFileByPath(filePath), bytes, options);
+    }
+
+    /**
+     * Write file from bytes by stream.
+     * <p>Uses the append and force of options.</p>
+     *
+     * @param file    The file.
+     * @param bytes   The bytes.
+     * @param options The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesByStream(final File file,
+                                                     final byte[] bytes,
+                                                     final IoOptions options) {
+        if (options != null && options.isAtomic() && bytes != null) {
+            return writeFileAtomic(file, options, new OnAtomicWriteListener() {
+                @Override
+                public boolean onWrite(File tempFile, IoOptions tempOptions) {
+                    return writeFileFromBytesByStream(tempFile, bytes, tempOptions);
+                }
+            });
+        }
+        if (bytes == null || options == null || !createOrExistsFile(file)) return false;
+        FileOutputStream os = null;
         try {
-            bos = new BufferedOutputStream(new FileOutputStream(file, append));
-            bos.write(bytes);
+            // one bulk write, so a BufferedOutputStream would only allocate a buffer for nothing
+            os = new FileOutputStream(file, options.isAppend());
+            os.write(bytes);
+            if (options.isForce()) os.getFD().sync();
             return true;
         } catch (IOException e) {
             e.printStackTrace();
             return false;
         } finally {
             try {
-                if (bos != null) {
-                    bos.close();
+                if (os != null) {
+                    os.close();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -237,12 +411,118 @@ public final class FileIOUtils {
                                                       final byte[] bytes,
                                                       final boolean append,
                                                       final boolean isForce) {
-        if (bytes == null) return false;
+        return writeFileFromBytesByChannel(file, bytes, defaultOptions(append).newBuilder().force(isForce).build());
+    }
+
+    /**
+     * Write file from bytes by channel.
+     *
+     * @param filePath The path of file.
+     * @param bytes    The bytes.
+     * @param options  The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesByChannel(final String filePath,
+                                                      final byte[] bytes,
+                                                      final IoOptions options) {
+        return writeFileFromBytesByChannel(getFileByPath(filePath), bytes, options);
+    }
+
+    /**
+     * Write file from bytes by channel.
+     * <p>Uses the append and force of options. If direct is set, the bytes are copied through a
+     * pooled direct buffer of the buffer size, instead of letting the channel allocate a
+     * temporary direct buffer as large as the bytes.</p>
+     *
+     * @param file    The file.
+     * @param bytes   The bytes.
+     * @param options The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesByChannel(final File file,
+                                                      final byte[] bytes,
+                                                      final IoOptions options) {
+        if (options != null && options.isAtomic() && bytes != null) {
+            return writeFileAtomic(file, options, new OnAtomicWriteListener() {
+                @Override
+                public boolean onWrite(File tempFile, IoOptions tempOptions) {
+                    return writeFileFromBytesByChannel(tempFile, bytes, tempOptions);
+                }
+            });
+        }
+        if (bytes == null || options == null) return false;
         FileChannel fc = null;
         try {
-            fc = new FileOutputStream(file, append).getChannel();
+            fc = new FileOutputStream(file, options.isAppend()).getChannel();
             fc.position(fc.size());
-            fc.write(ByteBuffer.wrap(bytes));
+            if (options.isDirect()) {
+                writeByDirectBuffer(fc, bytes, options.getBufferSize());
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    fc.write(buffer);
+                }
+            }
+            if (options.isForce()) fc.force(true);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            try {
+                if (fc != null) {
+                    fc.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Write file from buffers by gathering write.
+     *
+     * @param filePath The path of file.
+     * @param buffers  The buffers, e.g. header, body and trailer.
+     * @param append   True to append, false otherwise.
+     * @param isForce  True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBuffers(final String filePath,
+                                               final ByteBuffer[] buffers,
+                                               final boolean append,
+                                               final boolean isForce) {
+        return writeFileFromBuffers(getFileByPath(filePath), buffers, append, isForce);
+    }
+
+    /**
+     * Write file from buffers by gathering write.
+     * <p>The remaining bytes of all buffers are written in order by
+     * {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}, so parts of a payload
+     * don't need to be concatenated first. Positions of buffers are advanced.</p>
+     *
+     * @param file    The file.
+     * @param buffers The buffers, e.g. header, body and trailer.
+     * @param append  True to append, false otherwise.
+     * @param isForce True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBuffers(final File file,
+                                               final ByteBuffer[] buffers,
+                                               final boolean append,
+                                               final boolean isForce) {
+        if (buffers == null || !createOrExistsFile(file)) return false;
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == null) return false;
+            remaining += buffer.remaining();
+        }
+        FileChannel fc = null;
+        try {
+            fc = new FileOutputStream(file, append).getChannel();
+            while (remaining > 0) {
+                remaining -= fc.write(buffers);
+            }
             if (isForce) fc.force(true);
             return true;
         } catch (IOException e) {
@@ -259,6 +539,79 @@ public final class FileIOUtils {
         }
     }
 
+    /**
+     * Write file from buffer.
+     *
+     * @param filePath The path of file.
+     * @param buffer   The buffer.
+     * @param append   True to append, false otherwise.
+     * @param isForce  True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromByteBuffer(final String filePath,
+                                                  final ByteBuffer buffer,
+                                                  final boolean append,
+                                                  final boolean isForce) {
+        return writeFileFromByteBuffer(getFileByPath(filePath), buffer, append, isForce);
+    }
+
+    /**
+     * Write file from buffer.
+     * <p>The remaining bytes of buffer are written by channel and the position of buffer is
+     * advanced. A direct buffer, e.g. one received from a socket, goes to the file without being
+     * copied onto the heap.</p>
+     *
+     * @param file    The file.
+     * @param buffer  The buffer.
+     * @param append  True to append, false otherwise.
+     * @param isForce True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromByteBuffer(final File file,
+                                                  final ByteBuffer buffer,
+                                                  final boolean append,
+                                                  final boolean isForce) {
+        return buffer != null && writeFileFromBuffers(file, new ByteBuffer[]{buffer}, append, isForce);
+    }
+
+    /**
+     * Write file from arrays of bytes by gathering write.
+     *
+     * @param filePath The path of file.
+     * @param parts    The arrays of bytes, e.g. header, body and trailer.
+     * @param append   True to append, false otherwise.
+     * @param isForce  True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromByteArrays(final String filePath,
+                                                  final byte[][] parts,
+                                                  final boolean append,
+                                                  final boolean isForce) {
+        return writeFileFromByteArrays(getFileByPath(filePath), parts, append, isForce);
+    }
+
+    /**
+     * Write file from arrays of bytes by gathering write.
+     *
+     * @param file    The file.
+     * @param parts   The arrays of bytes, e.g. header, body and trailer.
+     * @param append  True to append, false otherwise.
+     * @param isForce True to force write file, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromByteArrays(final File file,
+                                                  final byte[][] parts,
+                                                  final boolean append,
+                                                  final boolean isForce) {
+        if (parts == null) return false;
+        ByteBuffer[] buffers = new ByteBuffer[parts.length];
+        for (int i = 0; i < parts.length; ++i) {
+            if (parts[i] == null) return false;
+            buffers[i] = ByteBuffer.wrap(parts[i]);
+        }
+        return writeFileFromBuffers(file, buffers, append, isForce);
+    }
+
     /**
      * Write file from bytes by map.
      *
@@ -305,6 +658,7 @@ public final class FileIOUtils {
 
     /**
      * Write file from bytes by map.
+     * <p>Every call maps a new region, use {@link MappedSegmentWriter} for repeated appends.</p>
      *
      * @param file    The file.
      * @param bytes   The bytes.
@@ -319,7 +673,9 @@ public final class FileIOUtils {
         if (bytes == null || !createOrExistsFile(file)) return false;
         FileChannel fc = null;
         try {
-            fc = new FileOutputStream(file, append).getChannel();
+            // a channel of FileOutputStream is write-only and can't be mapped READ_WRITE
+            fc = new RandomAccessFile(file, "rw").getChannel();
+            if (!append) fc.truncate(0);
             MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_WRITE, fc.size(), bytes.length);
             mbb.put(bytes);
             if (isForce) mbb.force();
@@ -385,12 +741,62 @@ public final class FileIOUtils {
     public static boolean writeFileFromString(final File file,
                                               final String content,
                                               final boolean append) {
-        if (file == null || content == null) return false;
+        return writeFileFromString(file, content, defaultOptions(append));
+    }
+
+    /**
+     * Write file from string.
+     *
+     * @param filePath The path of file.
+     * @param content  The string of content.
+     * @param options  The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromString(final String filePath,
+                                              final String content,
+                                              final IoOptions options) {
+        return writeFileFromString(getFileByPath(filePath), content, options);
+    }
+
+    /**
+     * Write file from string.
+     * <p>Uses the buffer size, charset, append and force of options.</p>
+     *
+     * @param file    The file.
+     * @param content The string of content.
+     * @param options The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromString(final File file,
+                                              final String content,
+                                              final IoOptions options) {
+        if (options != null && options.isAtomic() && content != null) {
+            return writeFileAtomic(file, options, new OnAtomicWriteListener() {
+                @Override
+                public boolean onWrite(File tempFile, IoOptions tempOptions) {
+                    return writeFileFromString(tempFile, content, tempOptions);
+                }
+            });
+        }
+        if (file == null || content == null || options == null) return false;
         if (!createOrExistsFile(file)) return false;
         BufferedWriter bw = null;
         try {
-            bw = new BufferedWriter(new FileWriter(file, append));
+            FileOutputStream fos = new FileOutputStream(file, options.isAppend());
+            String charsetName = options.getCharsetName();
+            try {
+                bw = new BufferedWriter(isSpace(charsetName)
+                        ? new OutputStreamWriter(fos)
+                        : new OutputStreamWriter(fos, charsetName), options.getBufferSize());
+            } catch (UnsupportedEncodingException e) {
+                fos.close();
+                throw e;
+            }
             bw.write(content);
+            if (options.isForce()) {
+                bw.flush();
+                fos.getFD().sync();
+            }
             return true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -406,44 +812,116 @@ public final class FileIOUtils {
         }
     }
 
-    ///////////////////////////////////////////////////////////////////////////
-    // the divide line of write and read
-    ///////////////////////////////////////////////////////////////////////////
-
     /**
-     * Return the lines in file.
+     * Write file from lines.
      *
      * @param filePath The path of file.
-     * @return the lines in file
-     */
-    public static List<String> readFile2List(final String filePath) {
-        return readFile2List(getFileByPath(filePath), null);
-    }
-
-    /**
-     * Return the lines in file.
-     *
-     * @param filePath    The path of file.
-     * @param charsetName The name of charset.
-     * @return the lines in file
+     * @param lines    The iterator of lines.
+     * @param options  The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
      */
-    public static List<String> readFile2List(final String filePath, final String charsetName) {
-        return readFile2List(getFileByPath(filePath), charsetName);
+    public static boolean writeFileFromLines(final String filePath,
+                                             final Iterator<String> lines,
+                                             final IoOptions options) {
+        return writeFileFromLines(getFileByPath(filePath), lines, options);
     }
 
     /**
-     * Return the lines in file.
+     * Write file from lines, each one followed by the line separator.
+     * <p>Uses the buffer size, charset, append, force and atomic of options. Lines are pulled
+     * from the iterator while writing, so they needn't fit in memory.</p>
      *
-     * @param file The file.
-     * @return the lines in file
+     * @param file    The file.
+     * @param lines   The iterator of lines.
+     * @param options The options of io.
+     * @return {@code true}: success<br>{@code false}: fail
      */
-    public static List<String> readFile2List(final File file) {
-        return readFile2List(file, 0, 0x7FFFFFFF, null);
-    }
-
-    /**
-     * Return the lines in file.
-     *
+    public static boolean writeFileFromLines(final File file,
+                                             final Iterator<String> lines,
+                                             final IoOptions options) {
+        if (options != null && options.isAtomic() && lines != null) {
+            return writeFileAtomic(file, options, new OnAtomicWriteListener() {
+                @Override
+                public boolean onWrite(File tempFile, IoOptions tempOptions) {
+                    return writeFileFromLines(tempFile, lines, tempOptions);
+                }
+            });
+        }
+        if (file == null || lines == null || options == null) return false;
+        if (!createOrExistsFile(file)) return false;
+        BufferedWriter bw = null;
+        try {
+            FileOutputStream fos = new FileOutputStream(file, options.isAppend());
+            String charsetName = options.getCharsetName();
+            try {
+                bw = new BufferedWriter(isSpace(charsetName)
+                        ? new OutputStreamWriter(fos)
+                        : new OutputStreamWriter(fos, charsetName), options.getBufferSize());
+            } catch (UnsupportedEncodingException e) {
+                fos.close();
+                throw e;
+            }
+            while (lines.hasNext()) {
+                bw.write(lines.next());
+                bw.newLine();
+            }
+            bw.flush();
+            if (options.isForce()) fos.getFD().sync();
+            bw.close();// a failed close must fail the write
+            bw = null;
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            try {
+                if (bw != null) {
+                    bw.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // the divide line of write and read
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Return the lines in file.
+     *
+     * @param filePath The path of file.
+     * @return the lines in file
+     */
+    public static List<String> readFile2List(final String filePath) {
+        return readFile2List(getFileByPath(filePath), null);
+    }
+
+    /**
+     * Return the lines in file.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset.
+     * @return the lines in file
+     */
+    public static List<String> readFile2List(final String filePath, final String charsetName) {
+        return readFile2List(getFileByPath(filePath), charsetName);
+    }
+
+    /**
+     * Return the lines in file.
+     *
+     * @param file The file.
+     * @return the lines in file
+     */
+    public static List<String> readFile2List(final File file) {
+        return readFile2List(file, 0, 0x7FFFFFFF, null);
+    }
+
+    /**
+     * Return the lines in file.
+     *
      * @param file        The file.
      * @param charsetName The name of charset.
      * @return the lines in file
@@ -505,20 +983,60 @@ public final class FileIOUtils {
                                              final int st,
                                              final int end,
                                              final String charsetName) {
+        return readFile2List(file, st, end, charsetName, null);
+    }
+
+    /**
+     * Return the lines in file.
+     *
+     * @param filePath    The path of file.
+     * @param st          The line's index of start.
+     * @param end         The line's index of end.
+     * @param charsetName The name of charset.
+     * @param index       The index of line offsets in file.
+     * @return the lines in file
+     */
+    public static List<String> readFile2List(final String filePath,
+                                             final int st,
+                                             final int end,
+                                             final String charsetName,
+                                             final LineIndex index) {
+        return readFile2List(getFileByPath(filePath), st, end, charsetName, index);
+    }
+
+    /**
+     * Return the lines in file.
+     * <p>If the index belongs to the file and is still valid, reading starts at the sampled
+     * offset nearest before {@code st} instead of the first line, otherwise the whole
+     * file is read from the beginning.</p>
+     *
+     * @param file        The file.
+     * @param st          The line's index of start.
+     * @param end         The line's index of end.
+     * @param charsetName The name of charset.
+     * @param index       The index of line offsets in file, {@code null} to read from the first line.
+     * @return the lines in file
+     */
+    public static List<String> readFile2List(final File file,
+                                             final int st,
+                                             final int end,
+                                             final String charsetName,
+                                             final LineIndex index) {
         if (!isFileExists(file)) return null;
         if (st > end) return null;
+        FileInputStream fis = null;
         BufferedReader reader = null;
         try {
             String line;
             int curLine = 1;
             List<String> list = new ArrayList<>();
-            if (isSpace(charsetName)) {
-                reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-            } else {
-                reader = new BufferedReader(
-                        new InputStreamReader(new FileInputStream(file), charsetName)
-                );
+            fis = new FileInputStream(file);
+            if (index != null && file.equals(index.getFile())
+                    && index.isValid() && index.isCharsetSupported(charsetName)) {
+                curLine = index.getSampledLine(st);
+                fis.getChannel().position(index.getSampledOffset(st));
             }
+            reader = createReader(fis, charsetName);
             while ((line = reader.readLine()) != null) {
                 if (curLine > end) break;
                 if (st <= curLine && curLine <= end) list.add(line);
@@ -532,6 +1050,8 @@ public final class FileIOUtils {
             try {
                 if (reader != null) {
                     reader.close();
+                } else if (fis != null) {// failed to seek before the reader wraps it
+                    fis.close();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -539,6 +1059,90 @@ public final class FileIOUtils {
         }
     }
 
+    /**
+     * Return the lazy iterator of lines in file.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset.
+     * @return the lazy iterator of lines in file
+     */
+    public static LineIterator readFile2LineIterator(final String filePath, final String charsetName) {
+        return readFile2LineIterator(getFileByPath(filePath), charsetName);
+    }
+
+    /**
+     * Return the lazy iterator of lines in file.
+     * <p>Only one line is held in memory at a time, and the file is closed when the
+     * iterator is exhausted or {@link LineIterator#close()} is called.</p>
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset.
+     * @return the lazy iterator of lines in file
+     */
+    public static LineIterator readFile2LineIterator(final File file, final String charsetName) {
+        if (!isFileExists(file)) return null;
+        try {
+            return new LineIterator(createReader(file, charsetName));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Return the lazy stream of lines in file.
+     *
+     * @param filePath The path of file.
+     * @return the lazy stream of lines in file
+     */
+    public static Stream<String> readFile2Stream(final String filePath) {
+        return readFile2Stream(getFileByPath(filePath), null);
+    }
+
+    /**
+     * Return the lazy stream of lines in file.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset.
+     * @return the lazy stream of lines in file
+     */
+    public static Stream<String> readFile2Stream(final String filePath, final String charsetName) {
+        return readFile2Stream(getFileByPath(filePath), charsetName);
+    }
+
+    /**
+     * Return the lazy stream of lines in file.
+     *
+     * @param file The file.
+     * @return the lazy stream of lines in file
+     */
+    public static Stream<String> readFile2Stream(final File file) {
+        return readFile2Stream(file, null);
+    }
+
+    /**
+     * Return the lazy stream of lines in file.
+     * <p>The stream should be closed, e.g. by try-with-resources, to release the file
+     * when it is not consumed to the end.</p>
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset.
+     * @return the lazy stream of lines in file
+     */
+    public static Stream<String> readFile2Stream(final File file, final String charsetName) {
+        final LineIterator iterator = readFile2LineIterator(file, charsetName);
+        if (iterator == null) return null;
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        ).onClose(new Runnable() {
+            @Override
+            public void run() {
+                iterator.close();
+            }
+        });
+    }
+
     /**
      * Return the string in file.
      *
@@ -572,24 +1176,53 @@ public final class FileIOUtils {
 
     /**
      * Return the string in file.
+     * <p>US-ASCII, ISO-8859-1 and UTF-8 are read into one exact array and decoded by the string
+     * itself. Other charsets are decoded while streaming, see {@link #readFile2CharSequence(File, String)}.</p>
      *
      * @param file        The file.
-     * @param charsetName The name of charset.
+     * @param charsetName The name of charset, {@code null} for the default charset.
      * @return the string in file
      */
     public static String readFile2String(final File file, final String charsetName) {
-        byte[] bytes = readFile2BytesByStream(file);
-        if (bytes == null) return null;
-        if (isSpace(charsetName)) {
-            return new String(bytes);
-        } else {
-            try {
-                return new String(bytes, charsetName);
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-                return "";
-            }
+        if (!isFileExists(file)) return null;
+        Charset charset = getCharset(charsetName);
+        if (charset == null) return "";
+        if (isFastCharset(charset)) {
+            // the string constructor has intrinsic decoders for these, so one exact array is cheapest
+            byte[] bytes = readFile2BytesByStream(file);
+            return bytes == null ? null : new String(bytes, charset);
         }
+        CharBuffer chars = decodeFile(file, charset);
+        return chars == null ? null : chars.toString();
+    }
+
+    /**
+     * Return the chars in file.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return the chars in file
+     */
+    public static CharSequence readFile2CharSequence(final String filePath, final String charsetName) {
+        return readFile2CharSequence(getFileByPath(filePath), charsetName);
+    }
+
+    /**
+     * Return the chars in file.
+     * <p>The file is decoded while streaming through a pooled buffer into one char buffer, which
+     * is returned as it is, so the whole file is never held as bytes and no string is copied
+     * from the chars. US-ASCII and ISO-8859-1 are widened byte by byte into an exact buffer, and
+     * UTF-8 is decoded into a buffer of the file length, which it never outgrows.</p>
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return the chars in file
+     */
+    public static CharSequence readFile2CharSequence(final File file, final String charsetName) {
+        if (!isFileExists(file)) return null;
+        Charset charset = getCharset(charsetName);
+        if (charset == null) return "";
+        return decodeFile(file, charset);
     }
 
     /**
@@ -609,15 +1242,70 @@ public final class FileIOUtils {
      * @return the bytes in file
      */
     public static byte[] readFile2BytesByStream(final File file) {
-        if (!isFileExists(file)) return null;
+        return readFile2BytesByStream(file, defaultOptions(false));
+    }
+
+    /**
+     * Return the bytes in file by stream.
+     *
+     * @param filePath The path of file.
+     * @param options  The options of io.
+     * @return the bytes in file
+     */
+    public static byte[] readFile2BytesByStream(final String filePath, final IoOptions options) {
+        return readFile2BytesByStream(getFileByPath(filePath), options);
+    }
+
+    /**
+     * Return the bytes in file by stream.
+     * <p>Uses the buffer size of options.</p>
+     *
+     * @param file    The file.
+     * @param options The options of io.
+     * @return the bytes in file, {@code null} if it is larger than an array, read such a file by
+     * {@link MappedFileReader}
+     */
+    public static byte[] readFile2BytesByStream(final File file, final IoOptions options) {
+        if (!isFileExists(file) || options == null) return null;
+        if (file.length() > MAX_ARRAY_SIZE) return null;// too large for one array
         try {
-            return is2Bytes(new FileInputStream(file));
+            return is2Bytes(new FileInputStream(file), file.length(), options.getBufferSize());
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Return the bytes in input stream.
+     * <p>If the size hint is right, the bytes are read into one exact array without any copy;
+     * otherwise the array grows until the end of stream.</p>
+     *
+     * @param is       The input stream, which is closed after reading.
+     * @param sizeHint The expected size of stream, negative if unknown.
+     * @return the bytes in input stream
+     */
+    public static byte[] readIS2Bytes(final InputStream is, final long sizeHint) {
+        return readIS2Bytes(is, sizeHint, IoOptions.DEFAULT);
+    }
+
+    /**
+     * Return the bytes in input stream.
+     * <p>Uses the buffer size of options to grow the array if the size is unknown.</p>
+     *
+     * @param is       The input stream, which is closed after reading.
+     * @param sizeHint The expected size of stream, negative if unknown.
+     * @param options  The options of io.
+     * @return the bytes in input stream
+     */
+    public static byte[] readIS2Bytes(final InputStream is, final long sizeHint, final IoOptions options) {
+        if (options == null) {
+            closeQuietly(is);
+            return null;
+        }
+        return is2Bytes(is, sizeHint, options.getBufferSize());
+    }
+
     /**
      * Return the bytes in file by channel.
      *
@@ -632,13 +1320,15 @@ public final class FileIOUtils {
      * Return the bytes in file by channel.
      *
      * @param file The file.
-     * @return the bytes in file
+     * @return the bytes in file, {@code null} if it is larger than an array, read such a file by
+     * {@link MappedFileReader}
      */
     public static byte[] readFile2BytesByChannel(final File file) {
         if (!isFileExists(file)) return null;
         FileChannel fc = null;
         try {
             fc = new RandomAccessFile(file, "r").getChannel();
+            if (fc.size() > MAX_ARRAY_SIZE) return null;// too large for one array
             ByteBuffer byteBuffer = ByteBuffer.allocate((int) fc.size());
             while (true) {
                 if (!((fc.read(byteBuffer)) > 0)) break;
@@ -659,31 +1349,38 @@ public final class FileIOUtils {
     }
 
     /**
-     * Return the bytes in file by map.
+     * Return the buffer of bytes in file.
      *
      * @param filePath The path of file.
-     * @return the bytes in file
+     * @param direct   True to allocate a direct buffer, false to allocate a heap buffer.
+     * @return the flipped buffer of bytes in file
      */
-    public static byte[] readFile2BytesByMap(final String filePath) {
-        return readFile2BytesByMap(getFileByPath(filePath));
+    public static ByteBuffer readFile2ByteBuffer(final String filePath, final boolean direct) {
+        return readFile2ByteBuffer(getFileByPath(filePath), direct);
     }
 
     /**
-     * Return the bytes in file by map.
+     * Return the buffer of bytes in file.
+     * <p>A direct buffer can be handed to a socket channel without being copied off the heap.</p>
      *
-     * @param file The file.
-     * @return the bytes in file
+     * @param file   The file.
+     * @param direct True to allocate a direct buffer, false to allocate a heap buffer.
+     * @return the flipped buffer of bytes in file, {@code null} if it is larger than a buffer, read
+     * such a file by {@link MappedFileReader}
      */
-    public static byte[] readFile2BytesByMap(final File file) {
+    public static ByteBuffer readFile2ByteBuffer(final File file, final boolean direct) {
         if (!isFileExists(file)) return null;
         FileChannel fc = null;
         try {
             fc = new RandomAccessFile(file, "r").getChannel();
+            if (fc.size() > MAX_ARRAY_SIZE) return null;// too large for one buffer
             int size = (int) fc.size();
-            MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, size).load();
-            byte[] result = new byte[size];
-            mbb.get(result, 0, size);
-            return result;
+            ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (fc.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            return buffer;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -699,45 +1396,455 @@ public final class FileIOUtils {
     }
 
     /**
-     * Set the buffer's size.
-     * <p>Default size equals 8192 bytes.</p>
+     * Read file into the buffer.
      *
-     * @param bufferSize The buffer's size.
+     * @param filePath The path of file.
+     * @param dst      The buffer to fill from its position.
+     * @return the number of bytes read, {@code -1} if fail
      */
-    public static void setBufferSize(final int bufferSize) {
-        sBufferSize = bufferSize;
+    public static int readFile2ByteBuffer(final String filePath, final ByteBuffer dst) {
+        return readFile2ByteBuffer(getFileByPath(filePath), dst);
     }
 
-    private static File getFileByPath(final String filePath) {
-        return isSpace(filePath) ? null : new File(filePath);
+    /**
+     * Read file into the buffer.
+     * <p>The buffer is filled from its position until it is full or the end of file is reached,
+     * so a reused direct buffer avoids any allocation. The buffer is not flipped.</p>
+     *
+     * @param file The file.
+     * @param dst  The buffer to fill from its position.
+     * @return the number of bytes read, {@code -1} if fail
+     */
+    public static int readFile2ByteBuffer(final File file, final ByteBuffer dst) {
+        return dst == null ? -1 : (int) readFile2Buffers(file, new ByteBuffer[]{dst});
     }
 
-    private static boolean createOrExistsFile(final String filePath) {
-        return createOrExistsFile(getFileByPath(filePath));
+    /**
+     * Read file into buffers by scattering read.
+     *
+     * @param filePath The path of file.
+     * @param buffers  The buffers to fill in order, e.g. header, body and trailer.
+     * @return the number of bytes read, {@code -1} if fail
+     */
+    public static long readFile2Buffers(final String filePath, final ByteBuffer[] buffers) {
+        return readFile2Buffers(getFileByPath(filePath), buffers);
     }
 
-    private static boolean createOrExistsFile(final File file) {
-        if (file == null) return false;
-        if (file.exists()) return file.isFile();
-        if (!createOrExistsDir(file.getParentFile())) return false;
+    /**
+     * Read file into buffers by scattering read.
+     * <p>Buffers are filled in order by
+     * {@link java.nio.channels.ScatteringByteChannel#read(ByteBuffer[])} until all of them are
+     * full or the end of file is reached. Positions of buffers are advanced.</p>
+     *
+     * @param file    The file.
+     * @param buffers The buffers to fill in order, e.g. header, body and trailer.
+     * @return the number of bytes read, {@code -1} if fail
+     */
+    public static long readFile2Buffers(final File file, final ByteBuffer[] buffers) {
+        if (buffers == null || !isFileExists(file)) return -1;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == null) return -1;
+        }
+        FileChannel fc = null;
         try {
-            return file.createNewFile();
+            fc = new RandomAccessFile(file, "r").getChannel();
+            long total = 0;
+            long read;
+            while ((read = fc.read(buffers)) > 0) {
+                total += read;
+            }
+            return total;
         } catch (IOException e) {
             e.printStackTrace();
-            return false;
+            return -1;
+        } finally {
+            try {
+                if (fc != null) {
+                    fc.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
-    private static boolean createOrExistsDir(final File file) {
-        return file != null && (file.exists() ? file.isDirectory() : file.mkdirs());
-    }
-
-    private static boolean isFileExists(final File file) {
-        return file != null && file.exists();
+    /**
+     * Return the bytes in file by map.
+     *
+     * @param filePath The path of file.
+     * @return the bytes in file
+     */
+    public static byte[] readFile2BytesByMap(final String filePath) {
+        return readFile2BytesByMap(getFileByPath(filePath));
     }
 
-    private static boolean isSpace(final String s) {
-        if (s == null) return true;
+    /**
+     * Return the bytes in file by map.
+     *
+     * @param file The file.
+     * @return the bytes in file, {@code null} if it is larger than an array, read such a file by
+     * {@link MappedFileReader}
+     */
+    public static byte[] readFile2BytesByMap(final File file) {
+        if (!isFileExists(file)) return null;
+        FileChannel fc = null;
+        try {
+            fc = new RandomAccessFile(file, "r").getChannel();
+            if (fc.size() > MAX_ARRAY_SIZE) return null;// too large for one array
+            int size = (int) fc.size();
+            MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, size).load();
+            byte[] result = new byte[size];
+            mbb.get(result, 0, size);
+            return result;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                if (fc != null) {
+                    fc.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Read file by mapped windows.
+     *
+     * @param filePath   The path of file.
+     * @param windowSize The size of window.
+     * @param listener   The window listener.
+     * @return {@code true}: every window was visited<br>{@code false}: stopped or fail
+     */
+    public static boolean readFile2Windows(final String filePath,
+                                           final int windowSize,
+                                           final MappedFileReader.OnWindowListener listener) {
+        return readFile2Windows(getFileByPath(filePath), windowSize, listener);
+    }
+
+    /**
+     * Read file by mapped windows.
+     * <p>Unlike {@link #readFile2BytesByMap(File)}, the file is never copied onto the heap,
+     * so it works for files larger than 2 GB.</p>
+     *
+     * @param file       The file.
+     * @param windowSize The size of window.
+     * @param listener   The window listener.
+     * @return {@code true}: every window was visited<br>{@code false}: stopped or fail
+     */
+    public static boolean readFile2Windows(final File file,
+                                           final int windowSize,
+                                           final MappedFileReader.OnWindowListener listener) {
+        if (!isFileExists(file) || listener == null) return false;
+        MappedFileReader reader = MappedFileReader.open(file, windowSize);
+        if (reader == null) return false;
+        try {
+            return reader.forEachWindow(listener);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Write file from bytes with compression.
+     *
+     * @param filePath    The path of file.
+     * @param bytes       The bytes.
+     * @param compression The format of compression.
+     * @param level       The level of compression, from 0 to 9, or -1 for the default level.
+     * @param append      True to append, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesCompressed(final String filePath,
+                                                       final byte[] bytes,
+                                                       final Compression compression,
+                                                       final int level,
+                                                       final boolean append) {
+        return writeFileFromBytesCompressed(getFileByPath(filePath), bytes, compression, level, append);
+    }
+
+    /**
+     * Write file from bytes with compression.
+     * <p>The bytes are compressed on the fly by a pooled {@link Deflater}, so no compressed copy
+     * is built in memory. Appending to a gzip file adds a member, which
+     * {@link #readFile2BytesDecompressed(File)} reads as one stream.</p>
+     *
+     * @param file        The file.
+     * @param bytes       The bytes.
+     * @param compression The format of compression.
+     * @param level       The level of compression, from 0 to 9, or -1 for the default level.
+     * @param append      True to append, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromBytesCompressed(final File file,
+                                                       final byte[] bytes,
+                                                       final Compression compression,
+                                                       final int level,
+                                                       final boolean append) {
+        return bytes != null && writeCompressed(file, bytes, null, compression, level, append);
+    }
+
+    /**
+     * Write file from input stream with compression.
+     *
+     * @param filePath    The path of file.
+     * @param is          The input stream.
+     * @param compression The format of compression.
+     * @param level       The level of compression, from 0 to 9, or -1 for the default level.
+     * @param append      True to append, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromISCompressed(final String filePath,
+                                                    final InputStream is,
+                                                    final Compression compression,
+                                                    final int level,
+                                                    final boolean append) {
+        return writeFileFromISCompressed(getFileByPath(filePath), is, compression, level, append);
+    }
+
+    /**
+     * Write file from input stream with compression.
+     * <p>The stream is read in chunks and compressed on the fly by a pooled {@link Deflater}.</p>
+     *
+     * @param file        The file.
+     * @param is          The input stream.
+     * @param compression The format of compression.
+     * @param level       The level of compression, from 0 to 9, or -1 for the default level.
+     * @param append      True to append, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromISCompressed(final File file,
+                                                    final InputStream is,
+                                                    final Compression compression,
+                                                    final int level,
+                                                    final boolean append) {
+        return is != null && writeCompressed(file, null, is, compression, level, append);
+    }
+
+    /**
+     * Return the decompressed bytes in file.
+     *
+     * @param filePath The path of file.
+     * @return the decompressed bytes in file
+     */
+    public static byte[] readFile2BytesDecompressed(final String filePath) {
+        return readFile2BytesDecompressed(getFileByPath(filePath));
+    }
+
+    /**
+     * Return the decompressed bytes in file.
+     * <p>See {@link #readFile2ISDecompressed(File)} for how the format is detected.</p>
+     *
+     * @param file The file.
+     * @return the decompressed bytes in file
+     */
+    public static byte[] readFile2BytesDecompressed(final File file) {
+        return readFile2BytesDecompressed(file, null);
+    }
+
+    /**
+     * Return the decompressed bytes in file.
+     *
+     * @param filePath    The path of file.
+     * @param compression The format of compression, {@code null} to detect gzip.
+     * @return the decompressed bytes in file
+     */
+    public static byte[] readFile2BytesDecompressed(final String filePath, final Compression compression) {
+        return readFile2BytesDecompressed(getFileByPath(filePath), compression);
+    }
+
+    /**
+     * Return the decompressed bytes in file.
+     *
+     * @param file        The file.
+     * @param compression The format of compression, {@code null} to detect gzip.
+     * @return the decompressed bytes in file
+     */
+    public static byte[] readFile2BytesDecompressed(final File file, final Compression compression) {
+        return is2Bytes(readFile2ISDecompressed(file, compression), -1, sBufferSize);
+    }
+
+    /**
+     * Return the decompressing input stream of file.
+     *
+     * @param filePath The path of file.
+     * @return the decompressing input stream of file
+     */
+    public static InputStream readFile2ISDecompressed(final String filePath) {
+        return readFile2ISDecompressed(getFileByPath(filePath));
+    }
+
+    /**
+     * Return the decompressing input stream of file.
+     * <p>A file starting with the gzip magic is read as gzip, including files of several members,
+     * and any other file is read as it is. A file of {@link Compression#DEFLATE} can't be told from
+     * plain bytes, read it by {@link #readFile2ISDecompressed(File, Compression)}.</p>
+     *
+     * @param file The file.
+     * @return the decompressing input stream of file
+     */
+    public static InputStream readFile2ISDecompressed(final File file) {
+        return readFile2ISDecompressed(file, null);
+    }
+
+    /**
+     * Return the decompressing input stream of file.
+     *
+     * @param filePath    The path of file.
+     * @param compression The format of compression, {@code null} to detect gzip.
+     * @return the decompressing input stream of file
+     */
+    public static InputStream readFile2ISDecompressed(final String filePath, final Compression compression) {
+        return readFile2ISDecompressed(getFileByPath(filePath), compression);
+    }
+
+    /**
+     * Return the decompressing input stream of file.
+     * <p>The stream inflates on the fly by a pooled {@link Inflater}, which is returned to the pool
+     * on close. A file of several members, e.g. appended by
+     * {@link #writeFileFromBytesCompressed(File, byte[], Compression, int, boolean)}, is read whole.</p>
+     *
+     * @param file        The file.
+     * @param compression The format of compression, {@code null} to detect gzip.
+     * @return the decompressing input stream of file
+     */
+    public static InputStream readFile2ISDecompressed(final File file, final Compression compression) {
+        if (!isFileExists(file)) return null;
+        try {
+            return new DecompressInputStream(new FileInputStream(file), compression);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Set the buffer's size.
+     * <p>Default size equals 8192 bytes, and a size which isn't positive is ignored.</p>
+     *
+     * @param bufferSize The buffer's size.
+     * @deprecated It changes the buffer's size for every caller in the JVM, pass
+     * {@link IoOptions} to the methods instead.
+     */
+    @Deprecated
+    public static void setBufferSize(final int bufferSize) {
+        if (bufferSize <= 0) return;// IoOptions rejects it, which would break every legacy overload
+        sBufferSize = bufferSize;
+    }
+
+    private static IoOptions defaultOptions(final boolean append) {
+        int bufferSize = sBufferSize;
+        if (!append && bufferSize == IoOptions.DEFAULT_BUFFER_SIZE) return IoOptions.DEFAULT;
+        return IoOptions.builder().bufferSize(bufferSize).append(append).build();
+    }
+
+    private static boolean writeFileAtomic(final File file,
+                                           final IoOptions options,
+                                           final OnAtomicWriteListener listener) {
+        // appending atomically would have to copy the old content, which is what atomic mode avoids
+        if (file == null || options.isAppend()) return false;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!createOrExistsDir(dir)) return false;
+        // the temporary file must be in the same directory, so renaming it is atomic
+        File tempFile = createTempFile(dir, file.getName());
+        if (tempFile == null) return false;
+        copyPermissions(file, tempFile);
+        boolean success = false;
+        try {
+            if (!listener.onWrite(tempFile, options.newBuilder().atomic(false).build())) return false;
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            success = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (!success) tempFile.delete();// best effort, the target is untouched anyway
+        }
+        // make the rename itself durable, not supported on every platform
+        if (options.isForce()) {
+            try (FileChannel dirChannel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+                dirChannel.force(true);
+            } catch (IOException ignored) {
+            }
+        }
+        return true;
+    }
+
+    private static File createTempFile(final File dir, final String name) {
+        // createNewFile honours the umask, unlike File.createTempFile which always creates 0600
+        for (int i = 0; i < 16; ++i) {
+            String suffix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            File tempFile = new File(dir, "." + name + "." + suffix + ".tmp");
+            try {
+                if (tempFile.createNewFile()) return tempFile;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static void copyPermissions(final File srcFile, final File destFile) {
+        if (!srcFile.exists()) return;
+        try {
+            Files.setPosixFilePermissions(destFile.toPath(), Files.getPosixFilePermissions(srcFile.toPath()));
+        } catch (IOException | UnsupportedOperationException ignored) {
+        }
+    }
+
+    private static void writeByDirectBuffer(final FileChannel fc,
+                                            final byte[] bytes,
+                                            final int bufferSize) throws IOException {
+        ByteBuffer buffer = BufferPool.getDefault().acquireDirect(bufferSize);
+        try {
+            for (int offset = 0; offset < bytes.length; ) {
+                int len = Math.min(bufferSize, bytes.length - offset);
+                buffer.clear();
+                buffer.put(bytes, offset, len);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    fc.write(buffer);
+                }
+                offset += len;
+            }
+        } finally {
+            BufferPool.getDefault().releaseDirect(buffer);
+        }
+    }
+
+    private static File getFileByPath(final String filePath) {
+        return isSpace(filePath) ? null : new File(filePath);
+    }
+
+    private static boolean createOrExistsFile(final String filePath) {
+        return createOrExistsFile(getFileByPath(filePath));
+    }
+
+    private static boolean createOrExistsFile(final File file) {
+        if (file == null) return false;
+        if (file.exists()) return file.isFile();
+        if (!createOrExistsDir(file.getParentFile())) return false;
+        try {
+            return file.createNewFile();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static boolean createOrExistsDir(final File file) {
+        return file != null && (file.exists() ? file.isDirectory() : file.mkdirs());
+    }
+
+    private static boolean isFileExists(final File file) {
+        return file != null && file.exists();
+    }
+
+    private static boolean isSpace(final String s) {
+        if (s == null) return true;
         for (int i = 0, len = s.length(); i < len; ++i) {
             if (!Character.isWhitespace(s.charAt(i))) {
                 return false;
@@ -746,17 +1853,44 @@ public final class FileIOUtils {
         return true;
     }
 
-    private static byte[] is2Bytes(final InputStream is) {
+    private static BufferedReader createReader(final File file, final String charsetName)
+            throws IOException {
+        return createReader(new FileInputStream(file), charsetName);
+    }
+
+    private static BufferedReader createReader(final InputStream is, final String charsetName)
+            throws IOException {
+        if (isSpace(charsetName)) {
+            return new BufferedReader(new InputStreamReader(is));
+        }
+        try {
+            return new BufferedReader(new InputStreamReader(is, charsetName));
+        } catch (UnsupportedEncodingException e) {
+            is.close();
+            throw e;
+        }
+    }
+
+    private static byte[] is2Bytes(final InputStream is, final long sizeHint, final int bufferSize) {
         if (is == null) return null;
-        ByteArrayOutputStream os = null;
         try {
-            os = new ByteArrayOutputStream();
-            byte[] b = new byte[sBufferSize];
-            int len;
-            while ((len = is.read(b, 0, sBufferSize)) != -1) {
-                os.write(b, 0, len);
+            // allocate the exact array once if the size is known, otherwise grow from the buffer size
+            byte[] bytes = new byte[sizeHint >= 0 && sizeHint <= MAX_ARRAY_SIZE ? (int) sizeHint : bufferSize];
+            int count = 0;
+            while (true) {
+                if (count == bytes.length) {
+                    int next = is.read();
+                    if (next == -1) return bytes;
+                    if (bytes.length == MAX_ARRAY_SIZE) return null;// too large for one array
+                    long newLength = Math.max((long) bytes.length << 1, (long) bytes.length + bufferSize);
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(newLength, MAX_ARRAY_SIZE));
+                    bytes[count++] = (byte) next;
+                }
+                int len = is.read(bytes, count, bytes.length - count);
+                if (len == -1) break;
+                count += len;
             }
-            return os.toByteArray();
+            return count == bytes.length ? bytes : Arrays.copyOf(bytes, count);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -766,13 +1900,452 @@ public final class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+        }
+    }
+
+    private static Charset getCharset(final String charsetName) {
+        if (isSpace(charsetName)) return Charset.defaultCharset();
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {// illegal or unsupported name
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static boolean isFastCharset(final Charset charset) {
+        return charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.UTF_8);
+    }
+
+    private static CharBuffer decodeFile(final File file, final Charset charset) {
+        long size = file.length();
+        if (size > MAX_ARRAY_SIZE) return null;// too large for one buffer
+        boolean ascii = charset.equals(StandardCharsets.US_ASCII);
+        boolean singleByte = ascii || charset.equals(StandardCharsets.ISO_8859_1);
+        CharsetDecoder decoder = singleByte ? null : charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int capacity = singleByte || charset.equals(StandardCharsets.UTF_8)
+                ? (int) size
+                : (int) Math.min(MAX_ARRAY_SIZE, (long) Math.ceil(size * (double) decoder.averageCharsPerByte()));
+        CharBuffer out = CharBuffer.allocate(Math.max(capacity, 1));
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(sBufferSize);
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            ByteBuffer in = ByteBuffer.wrap(buffer);
+            int len;
+            while ((len = is.read(buffer, in.position(), buffer.length - in.position())) != -1) {
+                if (singleByte) {
+                    out = ensureRemaining(out, len);
+                    for (int i = 0; i < len; ++i) {
+                        int b = buffer[i] & 0xff;
+                        out.put(ascii && b > 0x7f ? '\ufffd' : (char) b);
+                    }
+                    continue;
+                }
+                in.limit(in.position() + len);
+                in.position(0);
+                out = decode(decoder, in, out, false);
+                in.compact();
+            }
+            if (!singleByte) {
+                in.flip();
+                out = decode(decoder, in, out, true);
+                while (decoder.flush(out).isOverflow()) {
+                    out = ensureRemaining(out, 16);
+                }
+            }
+            out.flip();
+            return out;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            pool.release(buffer);
             try {
-                if (os != null) {
-                    os.close();
+                if (is != null) {
+                    is.close();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
     }
-}
\ No newline at end of file
+
+    private static CharBuffer decode(final CharsetDecoder decoder,
+                                     final ByteBuffer in,
+                                     CharBuffer out,
+                                     final boolean endOfInput) throws IOException {
+        while (decoder.decode(in, out, endOfInput).isOverflow()) {
+            out = ensureRemaining(out, (int) Math.ceil(in.remaining() * (double) decoder.averageCharsPerByte()) + 16);
+        }
+        return out;
+    }
+
+    private static CharBuffer ensureRemaining(final CharBuffer out, final int remaining) throws IOException {
+        if (out.remaining() >= remaining) return out;
+        if (out.capacity() == MAX_ARRAY_SIZE) throw new IOException("the chars are larger than a buffer");
+        long newCapacity = Math.max((long) out.capacity() << 1, (long) out.position() + remaining);
+        CharBuffer grown = CharBuffer.allocate((int) Math.min(newCapacity, MAX_ARRAY_SIZE));
+        out.flip();
+        grown.put(out);
+        return grown;
+    }
+
+    private static boolean writeCompressed(final File file,
+                                           final byte[] bytes,
+                                           final InputStream is,
+                                           final Compression compression,
+                                           final int level,
+                                           final boolean append) {
+        if (compression == null || level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION
+                || !createOrExistsFile(file)) {
+            closeQuietly(is);
+            return false;
+        }
+        boolean gzip = compression == Compression.GZIP;
+        Deflater deflater = acquireDeflater(gzip, level);
+        CRC32 crc = new CRC32();
+        BufferPool pool = BufferPool.getDefault();
+        int bufferSize = sBufferSize;
+        byte[] data = is == null ? null : pool.acquire(bufferSize);
+        byte[] out = pool.acquire(bufferSize);
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(file, append);
+            if (gzip) os.write(GZIP_HEADER);
+            if (bytes != null) {
+                if (gzip) crc.update(bytes, 0, bytes.length);
+                deflater.setInput(bytes);
+                deflate(deflater, os, out);
+            } else {
+                int len;
+                while ((len = is.read(data, 0, data.length)) != -1) {
+                    if (gzip) crc.update(data, 0, len);
+                    deflater.setInput(data, 0, len);
+                    deflate(deflater, os, out);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                os.write(out, 0, deflater.deflate(out));
+            }
+            if (gzip) {
+                writeIntLE(os, crc.getValue());
+                writeIntLE(os, deflater.getBytesRead());
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            releaseDeflater(gzip, deflater);
+            pool.release(data);
+            pool.release(out);
+            closeQuietly(is);
+            closeQuietly(os);
+        }
+    }
+
+    private static void deflate(final Deflater deflater, final OutputStream os, final byte[] out)
+            throws IOException {
+        while (!deflater.needsInput()) {
+            int len = deflater.deflate(out);
+            if (len > 0) os.write(out, 0, len);
+        }
+    }
+
+    private static void writeIntLE(final OutputStream os, final long value) throws IOException {
+        os.write((int) value & 0xff);
+        os.write((int) (value >>> 8) & 0xff);
+        os.write((int) (value >>> 16) & 0xff);
+        os.write((int) (value >>> 24) & 0xff);
+    }
+
+    private static Deflater acquireDeflater(final boolean gzip, final int level) {
+        Deflater deflater = (gzip ? sGzipDeflaters : sZlibDeflaters).poll();
+        if (deflater == null) return new Deflater(level, gzip);
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    private static void releaseDeflater(final boolean gzip, final Deflater deflater) {
+        Queue<Deflater> pool = gzip ? sGzipDeflaters : sZlibDeflaters;
+        if (pool.size() >= MAX_POOLED_CODERS) {
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        pool.offer(deflater);
+    }
+
+    private static Inflater acquireInflater(final boolean gzip) {
+        Inflater inflater = (gzip ? sGzipInflaters : sZlibInflaters).poll();
+        return inflater == null ? new Inflater(gzip) : inflater;
+    }
+
+    private static void releaseInflater(final boolean gzip, final Inflater inflater) {
+        Queue<Inflater> pool = gzip ? sGzipInflaters : sZlibInflaters;
+        if (pool.size() >= MAX_POOLED_CODERS) {
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        pool.offer(inflater);
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The format of compression.
+     */
+    public enum Compression {
+        /**
+         * The gzip format of RFC 1952, with header, CRC-32 and size.
+         */
+        GZIP,
+        /**
+         * The zlib format of RFC 1950, which wraps deflate with a header and an Adler-32.
+         */
+        DEFLATE
+    }
+
+    /**
+     * The input stream which inflates gzip or zlib on the fly, or passes other bytes through.
+     */
+    private static final class DecompressInputStream extends InputStream {
+
+        private final InputStream mIn;
+        private final byte[] mBuffer;
+        private final CRC32 mCrc = new CRC32();
+        private final byte[] mSingle = new byte[1];
+        private int mPos;
+        private int mLimit;
+        private Boolean mGzip;// null if passed through
+        private Inflater mInflater;
+        private boolean mEof;
+        private boolean mClosed;
+
+        private DecompressInputStream(final InputStream in, final Compression compression) throws IOException {
+            mIn = in;
+            mBuffer = BufferPool.getDefault().acquire(sBufferSize);
+            try {
+                // only gzip is detected, a zlib header is too weak a magic to guess plain bytes by
+                if (compression == Compression.DEFLATE) {
+                    mGzip = false;
+                } else if (isGzipMagic()) {
+                    mGzip = true;
+                    readGzipHeader();
+                } else if (compression == Compression.GZIP) {
+                    throw new ZipException("not in gzip format");
+                }
+                if (mGzip != null) mInflater = acquireInflater(mGzip);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(mSingle, 0, 1) == -1 ? -1 : mSingle[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) return 0;
+            if (mGzip == null) {// passed through
+                if (mPos < mLimit) {
+                    int n = Math.min(len, mLimit - mPos);
+                    System.arraycopy(mBuffer, mPos, b, off, n);
+                    mPos += n;
+                    return n;
+                }
+                return mIn.read(b, off, len);
+            }
+            try {
+                while (!mEof) {
+                    int n = mInflater.inflate(b, off, len);
+                    if (n > 0) {
+                        if (mGzip) mCrc.update(b, off, n);
+                        return n;
+                    }
+                    if (mInflater.finished()) {
+                        mPos = mLimit - mInflater.getRemaining();
+                        endMember();
+                    } else if (mInflater.needsDictionary()) {
+                        throw new ZipException("a preset dictionary is not supported");
+                    } else if (mInflater.needsInput()) {
+                        if (mPos == mLimit && !fill()) throw new EOFException("unexpected end of compressed file");
+                        mInflater.setInput(mBuffer, mPos, mLimit - mPos);
+                        mPos = mLimit;
+                    }
+                }
+                return -1;
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) return;
+            mClosed = true;
+            if (mInflater != null) {
+                releaseInflater(mGzip, mInflater);
+                mInflater = null;
+            }
+            BufferPool.getDefault().release(mBuffer);
+            mIn.close();
+        }
+
+        private void endMember() throws IOException {
+            if (mGzip) {
+                if ((readIntLE() & 0xffffffffL) != mCrc.getValue()) throw new ZipException("corrupt gzip trailer, crc");
+                if ((readIntLE() & 0xffffffffL) != (mInflater.getBytesWritten() & 0xffffffffL)) {
+                    throw new ZipException("corrupt gzip trailer, size");
+                }
+            }
+            // another member, e.g. appended by writeFileFromBytesCompressed, or trailing garbage
+            if (mGzip ? isGzipMagic() : isZlibHeader()) {
+                mInflater.reset();
+                mCrc.reset();
+                if (mGzip) readGzipHeader();
+            } else {
+                mEof = true;
+            }
+        }
+
+        private boolean isGzipMagic() throws IOException {
+            return available(2) && mBuffer[mPos] == 0x1f && mBuffer[mPos + 1] == (byte) 0x8b;
+        }
+
+        private boolean isZlibHeader() throws IOException {
+            if (!available(2)) return false;
+            int cmf = mBuffer[mPos] & 0xff;
+            int flg = mBuffer[mPos + 1] & 0xff;
+            return (cmf & 0x0f) == Deflater.DEFLATED && (cmf << 8 | flg) % 31 == 0;
+        }
+
+        private void readGzipHeader() throws IOException {
+            skip(2);// magic
+            if (readUByte() != Deflater.DEFLATED) throw new ZipException("unsupported gzip method");
+            int flags = readUByte();
+            skip(6);// mtime, xfl and os
+            if ((flags & 4) != 0) skip(readUByte() | readUByte() << 8);// extra
+            if ((flags & 8) != 0) skipString();// name
+            if ((flags & 16) != 0) skipString();// comment
+            if ((flags & 2) != 0) skip(2);// crc of header
+        }
+
+        private int readIntLE() throws IOException {
+            return readUByte() | readUByte() << 8 | readUByte() << 16 | readUByte() << 24;
+        }
+
+        private int readUByte() throws IOException {
+            if (mPos == mLimit && !fill()) throw new EOFException("unexpected end of compressed file");
+            return mBuffer[mPos++] & 0xff;
+        }
+
+        private void skip(final int count) throws IOException {
+            for (int i = 0; i < count; ++i) {
+                readUByte();
+            }
+        }
+
+        private void skipString() throws IOException {
+            while (true) {
+                if (readUByte() == 0) return;
+            }
+        }
+
+        private boolean available(final int count) throws IOException {
+            while (mLimit - mPos < count) {
+                if (mPos > 0) {// keep the unread bytes at the start of buffer
+                    System.arraycopy(mBuffer, mPos, mBuffer, 0, mLimit - mPos);
+                    mLimit -= mPos;
+                    mPos = 0;
+                }
+                int len = mIn.read(mBuffer, mLimit, mBuffer.length - mLimit);
+                if (len == -1) return false;
+                mLimit += len;
+            }
+            return true;
+        }
+
+        private boolean fill() throws IOException {
+            int len = mIn.read(mBuffer, 0, mBuffer.length);
+            if (len == -1) return false;
+            mPos = 0;
+            mLimit = len;
+            return true;
+        }
+    }
+
+    /**
+     * The lazy iterator of lines in file.
+     */
+    public static final class LineIterator implements Iterator<String>, Closeable {
+
+        private final BufferedReader mReader;
+        private String mNextLine;
+        private boolean mFinished;
+
+        private LineIterator(final BufferedReader reader) {
+            mReader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (mNextLine != null) return true;
+            if (mFinished) return false;
+            try {
+                mNextLine = mReader.readLine();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            if (mNextLine == null) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String line = mNextLine;
+            mNextLine = null;
+            return line;
+        }
+
+        @Override
+        public void close() {
+            if (mFinished) return;
+            mFinished = true;
+            mNextLine = null;
+            try {
+                mReader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private interface OnAtomicWriteListener {
+        boolean onWrite(File tempFile, IoOptions tempOptions);
+    }
+}
@@ -0,0 +1,280 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <pre>
+ *     desc  : utils about sorting lines of file
+ * </pre>
+ * <p>Lines are sorted by an external merge sort, so memory stays within a budget whatever the
+ * size of file: lines are read lazily by {@link FileIOUtils#readFile2LineIterator(File, String)}
+ * into a run until the run reaches the budget, every run is sorted and spilled to a temporary
+ * file next to the destination, then the runs are merged by a heap of their head lines. Runs and
+ * the destination are written by {@link FileIOUtils#writeFileFromLines(File, Iterator, IoOptions)}.</p>
+ */
+public final class FileSortUtils {
+
+    /**
+     * The default memory budget of a run, 64 MB.
+     */
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private static final int MAX_MERGE_FAN_IN = 128;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileSortUtils() {
+        throw new UnsupportedOperationException("u can't instantiate me...");
+    }
+
+    /**
+     * Sort lines of file in natural order.
+     *
+     * @param srcFilePath  The path of source file.
+     * @param destFilePath The path of destination file.
+     * @param charsetName  The name of charset, {@code null} for the default charset.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean sortLines(final String srcFilePath,
+                                    final String destFilePath,
+                                    final String charsetName) {
+        return sortLines(getFileByPath(srcFilePath), getFileByPath(destFilePath), charsetName);
+    }
+
+    /**
+     * Sort lines of file in natural order.
+     *
+     * @param srcFile     The source file.
+     * @param destFile    The destination file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean sortLines(final File srcFile, final File destFile, final String charsetName) {
+        return sortLines(srcFile, destFile, charsetName, null, DEFAULT_MAX_MEMORY_BYTES, false);
+    }
+
+    /**
+     * Sort lines of file.
+     *
+     * @param srcFilePath    The path of source file.
+     * @param destFilePath   The path of destination file.
+     * @param charsetName    The name of charset, {@code null} for the default charset.
+     * @param comparator     The comparator of lines, {@code null} for natural order.
+     * @param maxMemoryBytes The memory budget of a run.
+     * @param parallel       True to sort every run by {@link Arrays#parallelSort}, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean sortLines(final String srcFilePath,
+                                    final String destFilePath,
+                                    final String charsetName,
+                                    final Comparator<String> comparator,
+                                    final long maxMemoryBytes,
+                                    final boolean parallel) {
+        return sortLines(getFileByPath(srcFilePath), getFileByPath(destFilePath),
+                charsetName, comparator, maxMemoryBytes, parallel);
+    }
+
+    /**
+     * Sort lines of file.
+     * <p>The sort is stable, and the destination may be the source file. The memory of a line
+     * is estimated from its length, so the heap used by a run stays near {@code maxMemoryBytes}.
+     * Runs are merged at most {@value #MAX_MERGE_FAN_IN} at a time, so the number of open files
+     * stays bounded.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param charsetName    The name of charset, {@code null} for the default charset.
+     * @param comparator     The comparator of lines, {@code null} for natural order.
+     * @param maxMemoryBytes The memory budget of a run.
+     * @param parallel       True to sort every run by {@link Arrays#parallelSort}, false otherwise.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean sortLines(final File srcFile,
+                                    final File destFile,
+                                    final String charsetName,
+                                    final Comparator<String> comparator,
+                                    final long maxMemoryBytes,
+                                    final boolean parallel) {
+        if (srcFile == null || destFile == null || maxMemoryBytes <= 0) return false;
+        if (!FileUtils.createOrExistsDir(destFile.getAbsoluteFile().getParentFile())) return false;
+        final Comparator<String> order = comparator == null ? Comparator.<String>naturalOrder() : comparator;
+        FileIOUtils.LineIterator lines = FileIOUtils.readFile2LineIterator(srcFile, charsetName);
+        if (lines == null) return false;
+        List<File> runs = new ArrayList<>();
+        try {
+            List<String> run = new ArrayList<>();
+            long runBytes = 0;
+            while (lines.hasNext()) {
+                String line = lines.next();
+                run.add(line);
+                runBytes += estimateBytes(line);
+                if (runBytes >= maxMemoryBytes) {
+                    runs.add(spillRun(run, order, parallel, destFile, charsetName));
+                    run.clear();
+                    runBytes = 0;
+                }
+            }
+            if (runs.isEmpty()) {// fits in memory, no merge is needed
+                String[] sorted = sortRun(run, order, parallel);
+                return FileIOUtils.writeFileFromLines(destFile, Arrays.asList(sorted).iterator(),
+                        writeOptions(charsetName));
+            }
+            if (!run.isEmpty()) {
+                runs.add(spillRun(run, order, parallel, destFile, charsetName));
+                run.clear();
+            }
+            while (runs.size() > MAX_MERGE_FAN_IN) {
+                // the merged run takes the place of its group, so the order of runs is kept
+                List<File> group = new ArrayList<>(runs.subList(0, MAX_MERGE_FAN_IN));
+                File merged = createRunFile(destFile);
+                runs.add(MAX_MERGE_FAN_IN, merged);
+                mergeRuns(group, merged, charsetName, order);
+                runs.subList(0, MAX_MERGE_FAN_IN).clear();
+                deleteRuns(group);
+            }
+            mergeRuns(runs, destFile, charsetName, order);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            lines.close();
+            deleteRuns(runs);
+        }
+    }
+
+    private static long estimateBytes(final String line) {
+        // header of string and its array plus two bytes a char
+        return 40 + 2L * line.length();
+    }
+
+    private static String[] sortRun(final List<String> run,
+                                    final Comparator<String> order,
+                                    final boolean parallel) {
+        String[] sorted = run.toArray(new String[run.size()]);
+        if (parallel) {
+            Arrays.parallelSort(sorted, order);
+        } else {
+            Arrays.sort(sorted, order);
+        }
+        return sorted;
+    }
+
+    private static File spillRun(final List<String> run,
+                                 final Comparator<String> order,
+                                 final boolean parallel,
+                                 final File destFile,
+                                 final String charsetName) throws IOException {
+        File runFile = createRunFile(destFile);
+        if (!FileIOUtils.writeFileFromLines(runFile, Arrays.asList(sortRun(run, order, parallel)).iterator(),
+                writeOptions(charsetName))) {
+            throw new IOException("fail to spill run to " + runFile);
+        }
+        return runFile;
+    }
+
+    private static File createRunFile(final File destFile) throws IOException {
+        return File.createTempFile("." + destFile.getName() + ".run", ".tmp",
+                destFile.getAbsoluteFile().getParentFile());
+    }
+
+    private static void mergeRuns(final List<File> runs,
+                                  final File destFile,
+                                  final String charsetName,
+                                  final Comparator<String> order) throws IOException {
+        final PriorityQueue<RunReader> heap = new PriorityQueue<>(runs.size(), new Comparator<RunReader>() {
+            @Override
+            public int compare(RunReader o1, RunReader o2) {
+                int result = order.compare(o1.mHead, o2.mHead);
+                // equal lines keep the order of runs, so the sort is stable
+                return result != 0 ? result : Integer.compare(o1.mIndex, o2.mIndex);
+            }
+        });
+        try {
+            for (int i = 0; i < runs.size(); ++i) {
+                FileIOUtils.LineIterator lines = FileIOUtils.readFile2LineIterator(runs.get(i), charsetName);
+                if (lines == null) throw new IOException("fail to read run " + runs.get(i));
+                RunReader reader = new RunReader(lines, i);
+                if (reader.advance()) heap.add(reader);
+            }
+            Iterator<String> merged = new Iterator<String>() {
+                @Override
+                public boolean hasNext() {
+                    return !heap.isEmpty();
+                }
+
+                @Override
+                public String next() {
+                    RunReader reader = heap.poll();
+                    String line = reader.mHead;
+                    try {
+                        if (reader.advance()) {
+                            heap.add(reader);
+                            reader = null;
+                        }
+                    } finally {// a reader out of the heap is closed here, as the heap is closed below
+                        if (reader != null) reader.mLines.close();
+                    }
+                    return line;
+                }
+            };
+            if (!FileIOUtils.writeFileFromLines(destFile, merged, writeOptions(charsetName))) {
+                throw new IOException("fail to write " + destFile);
+            }
+        } finally {
+            for (RunReader reader : heap) {
+                reader.mLines.close();
+            }
+        }
+    }
+
+    private static IoOptions writeOptions(final String charsetName) {
+        return IoOptions.builder().bufferSize(BUFFER_SIZE).charset(charsetName).build();
+    }
+
+    private static void deleteRuns(final List<File> runs) {
+        for (File run : runs) {
+            run.delete();// best effort, a leftover run doesn't fail the sort
+        }
+    }
+
+    private static File getFileByPath(final String filePath) {
+        return isSpace(filePath) ? null : new File(filePath);
+    }
+
+    private static boolean isSpace(final String s) {
+        if (s == null) return true;
+        for (int i = 0, len = s.length(); i < len; ++i) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class RunReader {
+
+        private final FileIOUtils.LineIterator mLines;
+        private final int mIndex;
+        private String mHead;
+
+        private RunReader(final FileIOUtils.LineIterator lines, final int index) {
+            mLines = lines;
+            mIndex = index;
+        }
+
+        private boolean advance() {
+            if (!mLines.hasNext()) return false;
+            mHead = mLines.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     desc  : follow the lines appended to a growing file
+ * </pre>
+ * <p>The tailer remembers the byte offset it has read up to and reads only the bytes appended
+ * after it, by positional reads of channel. A line is delivered once its {@code '\n'} has been
+ * written, without the trailing {@code "\r\n"} or {@code '\n'}.</p>
+ * <p>If the file is replaced, e.g. by log rotation, which is detected by its file key (the inode
+ * on unix), the rest of the old file is read first, then the new file is followed from its start.
+ * If the file shrinks below the offset, it has been truncated and is followed from its start
+ * again. Lines are split on the byte {@code '\n'}, so the charset must be ASCII-compatible,
+ * e.g. UTF-8 or GBK.</p>
+ */
+public final class FileTailer implements Closeable {
+
+    private final File mFile;
+    private final Charset mCharset;
+    private final byte[] mBuffer;
+    private FileChannel mChannel;
+    private Object mFileKey;
+    private long mOffset;
+    private byte[] mPending = new byte[0];
+    private int mPendingLength;
+    private ScheduledExecutorService mScheduler;
+    private boolean mClosed;
+
+    private FileTailer(final File file, final Charset charset, final long offset) {
+        mFile = file;
+        mCharset = charset;
+        mOffset = offset;
+        mBuffer = new byte[IoOptions.DEFAULT_BUFFER_SIZE];
+    }
+
+    /**
+     * Open the tailer.
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @param fromEnd     True to follow from the current end of file, false from its start.
+     * @return the tailer, {@code null} if fail
+     */
+    public static FileTailer open(final File file, final String charsetName, final boolean fromEnd) {
+        return open(file, charsetName, fromEnd ? -1 : 0);
+    }
+
+    /**
+     * Open the tailer from the offset, e.g. one returned by {@link #getOffset()} before a restart.
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @param offset      The byte offset to follow from, {@code -1} for the current end of file.
+     * @return the tailer, {@code null} if fail
+     */
+    public static FileTailer open(final File file, final String charsetName, final long offset) {
+        if (file == null || offset < -1) return null;
+        Charset charset;
+        try {
+            charset = charsetName == null || charsetName.trim().isEmpty()
+                    ? Charset.defaultCharset() : Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {// illegal or unsupported name
+            e.printStackTrace();
+            return null;
+        }
+        FileTailer tailer = new FileTailer(file, charset, offset == -1 ? file.length() : offset);
+        try {
+            tailer.openChannel();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return tailer;
+    }
+
+    /**
+     * Read the lines appended since the last poll.
+     *
+     * @return the complete lines appended since the last poll, {@code null} if fail
+     */
+    public synchronized List<String> poll() {
+        if (mClosed) return null;
+        List<String> lines = new ArrayList<>();
+        try {
+            Object fileKey = currentFileKey();
+            if (mChannel == null) {// the file didn't exist yet
+                if (!openChannel()) return lines;
+            } else if (fileKey != null && !fileKey.equals(mFileKey)) {// rotated
+                readAppended(lines);
+                flushPending(lines);
+                CloseUtils.closeIO(mChannel);
+                mChannel = null;
+                mOffset = 0;
+                if (!openChannel()) return lines;
+            }
+            if (mChannel.size() < mOffset) {// truncated
+                mOffset = 0;
+                mPendingLength = 0;
+            }
+            readAppended(lines);
+            return lines;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Poll the file on a background thread and deliver every complete line to the listener, so a
+     * line is delivered at most about {@code pollIntervalMillis} after it was written.
+     *
+     * @param pollIntervalMillis The interval of polls in milliseconds.
+     * @param listener           The listener.
+     * @return {@code true}: success<br>{@code false}: fail, e.g. closed or already following
+     */
+    public synchronized boolean follow(final long pollIntervalMillis, final OnLineListener listener) {
+        if (mClosed || mScheduler != null || pollIntervalMillis <= 0 || listener == null) return false;
+        mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "file-tailer-" + mFile.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mScheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                List<String> lines = poll();
+                if (lines == null) return;
+                for (String line : lines) {
+                    try {
+                        listener.onLine(line);
+                    } catch (RuntimeException e) {// a thrown exception would cancel every later poll
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Return the byte offset read up to, which excludes an incomplete last line.
+     *
+     * @return the byte offset read up to
+     */
+    public synchronized long getOffset() {
+        return mOffset - mPendingLength;
+    }
+
+    /**
+     * Stop following and close the file.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            if (mClosed) return;
+            mClosed = true;
+            scheduler = mScheduler;
+            CloseUtils.closeIO(mChannel);
+            mChannel = null;
+        }
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private boolean openChannel() throws IOException {
+        try {
+            mChannel = FileChannel.open(mFile.toPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        mFileKey = currentFileKey();
+        return true;
+    }
+
+    private Object currentFileKey() throws IOException {
+        try {
+            return Files.readAttributes(mFile.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return mFileKey;// rotated away but not recreated yet, keep the old file
+        }
+    }
+
+    private void readAppended(final List<String> lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(mBuffer);
+        int len;
+        while ((len = mChannel.read(buffer, mOffset)) > 0) {
+            mOffset += len;
+            int start = 0;
+            for (int i = 0; i < len; ++i) {
+                if (mBuffer[i] != '\n') continue;
+                appendPending(start, i - start);
+                lines.add(pendingLine());
+                start = i + 1;
+            }
+            appendPending(start, len - start);
+            buffer.clear();
+        }
+    }
+
+    private void appendPending(final int start, final int len) {
+        if (mPendingLength + len > mPending.length) {
+            mPending = Arrays.copyOf(mPending, Math.max(mPending.length << 1, mPendingLength + len));
+        }
+        System.arraycopy(mBuffer, start, mPending, mPendingLength, len);
+        mPendingLength += len;
+    }
+
+    private String pendingLine() {
+        int len = mPendingLength;
+        if (len > 0 && mPending[len - 1] == '\r') len--;
+        mPendingLength = 0;
+        return new String(mPending, 0, len, mCharset);
+    }
+
+    private void flushPending(final List<String> lines) {
+        if (mPendingLength > 0) lines.add(pendingLine());
+    }
+
+    public interface OnLineListener {
+        /**
+         * A runtime exception thrown here is printed and the line is dropped, the following
+         * lines are still delivered.
+         */
+        void onLine(String line);
+    }
+}
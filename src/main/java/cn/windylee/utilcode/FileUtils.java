@@ -3,11 +3,41 @@ package cn.windylee.utilcode;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <pre>
@@ -309,6 +339,35 @@ public final class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, false);
     }
 
+    /**
+     * Copy the file and return the strategy which copied it.
+     *
+     * @param srcFilePath  The path of source file.
+     * @param destFilePath The path of destination file.
+     * @param listener     The replace listener.
+     * @return the strategy which copied the file, {@code null} if fail
+     */
+    public static CopyStrategy copyFileWithStrategy(final String srcFilePath,
+                                                    final String destFilePath,
+                                                    final OnReplaceListener listener) {
+        return copyFileWithStrategy(getFileByPath(srcFilePath), getFileByPath(destFilePath), listener);
+    }
+
+    /**
+     * Copy the file and return the strategy which copied it.
+     * <p>The file is transferred by channel, and by stream only if the channel fails.</p>
+     *
+     * @param srcFile  The source file.
+     * @param destFile The destination file.
+     * @param listener The replace listener.
+     * @return the strategy which copied the file, {@code null} if fail
+     */
+    public static CopyStrategy copyFileWithStrategy(final File srcFile,
+                                                    final File destFile,
+                                                    final OnReplaceListener listener) {
+        return copyOrMoveFileWithStrategy(srcFile, destFile, listener, false);
+    }
+
     /**
      * Move the directory.
      *
@@ -413,6 +472,283 @@ public final class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, true);
     }
 
+    /**
+     * Move the directory and return the strategy which moved it.
+     *
+     * @param srcDirPath  The path of source directory.
+     * @param destDirPath The path of destination directory.
+     * @param listener    The replace listener.
+     * @return the strategy which moved the directory, {@code null} if fail
+     */
+    public static CopyStrategy moveDirWithStrategy(final String srcDirPath,
+                                                   final String destDirPath,
+                                                   final OnReplaceListener listener) {
+        return moveDirWithStrategy(getFileByPath(srcDirPath), getFileByPath(destDirPath), listener);
+    }
+
+    /**
+     * Move the directory and return the strategy which moved it.
+     * <p>The directory is renamed at once if source and destination are on the same file system,
+     * otherwise its files are copied and deleted, and the slowest strategy of them is returned, or
+     * {@link CopyStrategy#CHANNEL} if there is no file to copy.</p>
+     *
+     * @param srcDir   The source directory.
+     * @param destDir  The destination directory.
+     * @param listener The replace listener.
+     * @return the strategy which moved the directory, {@code null} if fail
+     */
+    public static CopyStrategy moveDirWithStrategy(final File srcDir,
+                                                   final File destDir,
+                                                   final OnReplaceListener listener) {
+        return copyOrMoveDirWithStrategy(srcDir, destDir, listener, true);
+    }
+
+    /**
+     * Move the file and return the strategy which moved it.
+     *
+     * @param srcFilePath  The path of source file.
+     * @param destFilePath The path of destination file.
+     * @param listener     The replace listener.
+     * @return the strategy which moved the file, {@code null} if fail
+     */
+    public static CopyStrategy moveFileWithStrategy(final String srcFilePath,
+                                                    final String destFilePath,
+                                                    final OnReplaceListener listener) {
+        return moveFileWithStrategy(getFileByPath(srcFilePath), getFileByPath(destFilePath), listener);
+    }
+
+    /**
+     * Move the file and return the strategy which moved it.
+     * <p>The file is renamed if source and destination are on the same file system, otherwise it
+     * is copied and deleted.</p>
+     *
+     * @param srcFile  The source file.
+     * @param destFile The destination file.
+     * @param listener The replace listener.
+     * @return the strategy which moved the file, {@code null} if fail
+     */
+    public static CopyStrategy moveFileWithStrategy(final File srcFile,
+                                                    final File destFile,
+                                                    final OnReplaceListener listener) {
+        return copyOrMoveFileWithStrategy(srcFile, destFile, listener, true);
+    }
+
+    /**
+     * Copy the directory in parallel.
+     *
+     * @param srcDirPath  The path of source directory.
+     * @param destDirPath The path of destination directory.
+     * @param listener    The replace listener.
+     * @param parallelism The number of threads which copy files.
+     * @return the result of copy, {@code null} if fail
+     */
+    public static CopyResult copyDirParallel(final String srcDirPath,
+                                             final String destDirPath,
+                                             final OnReplaceListener listener,
+                                             final int parallelism) {
+        return copyDirParallel(getFileByPath(srcDirPath), getFileByPath(destDirPath), listener, parallelism);
+    }
+
+    /**
+     * Copy the directory in parallel.
+     *
+     * @param srcDir      The source directory.
+     * @param destDir     The destination directory.
+     * @param listener    The replace listener.
+     * @param parallelism The number of threads which copy files.
+     * @return the result of copy, {@code null} if fail
+     */
+    public static CopyResult copyDirParallel(final File srcDir,
+                                             final File destDir,
+                                             final OnReplaceListener listener,
+                                             final int parallelism) {
+        return copyOrMoveDirParallel(srcDir, destDir, listener, parallelism, false);
+    }
+
+    /**
+     * Copy the directory in parallel.
+     * <p>The tree is walked once, then every file is copied by a task of the executor. The tasks
+     * call the listener one at a time, so it needn't be thread-safe.</p>
+     *
+     * @param srcDir   The source directory.
+     * @param destDir  The destination directory.
+     * @param listener The replace listener.
+     * @param executor The executor which copies files.
+     * @return the result of copy, {@code null} if fail
+     */
+    public static CopyResult copyDirParallel(final File srcDir,
+                                             final File destDir,
+                                             final OnReplaceListener listener,
+                                             final Executor executor) {
+        return copyOrMoveDirParallel(srcDir, destDir, listener, executor, false);
+    }
+
+    /**
+     * Move the directory in parallel.
+     *
+     * @param srcDirPath  The path of source directory.
+     * @param destDirPath The path of destination directory.
+     * @param listener    The replace listener.
+     * @param parallelism The number of threads which move files.
+     * @return the result of move, {@code null} if fail
+     */
+    public static CopyResult moveDirParallel(final String srcDirPath,
+                                             final String destDirPath,
+                                             final OnReplaceListener listener,
+                                             final int parallelism) {
+        return moveDirParallel(getFileByPath(srcDirPath), getFileByPath(destDirPath), listener, parallelism);
+    }
+
+    /**
+     * Move the directory in parallel.
+     *
+     * @param srcDir      The source directory.
+     * @param destDir     The destination directory.
+     * @param listener    The replace listener.
+     * @param parallelism The number of threads which move files.
+     * @return the result of move, {@code null} if fail
+     */
+    public static CopyResult moveDirParallel(final File srcDir,
+                                             final File destDir,
+                                             final OnReplaceListener listener,
+                                             final int parallelism) {
+        return copyOrMoveDirParallel(srcDir, destDir, listener, parallelism, true);
+    }
+
+    /**
+     * Move the directory in parallel.
+     * <p>The source directory is deleted only if every file was moved. The tasks call the listener
+     * one at a time, so it needn't be thread-safe.</p>
+     *
+     * @param srcDir   The source directory.
+     * @param destDir  The destination directory.
+     * @param listener The replace listener.
+     * @param executor The executor which moves files.
+     * @return the result of move, {@code null} if fail
+     */
+    public static CopyResult moveDirParallel(final File srcDir,
+                                             final File destDir,
+                                             final OnReplaceListener listener,
+                                             final Executor executor) {
+        return copyOrMoveDirParallel(srcDir, destDir, listener, executor, true);
+    }
+
+    private static CopyResult copyOrMoveDirParallel(final File srcDir,
+                                                    final File destDir,
+                                                    final OnReplaceListener listener,
+                                                    final int parallelism,
+                                                    final boolean isMove) {
+        if (parallelism <= 0) return null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return copyOrMoveDirParallel(srcDir, destDir, listener, pool, isMove);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static CopyResult copyOrMoveDirParallel(final File srcDir,
+                                                    final File destDir,
+                                                    final OnReplaceListener listener,
+                                                    final Executor executor,
+                                                    final boolean isMove) {
+        if (srcDir == null || destDir == null || executor == null) return null;
+        long startTime = System.currentTimeMillis();
+        // destDir's path locate in srcDir's path then return null
+        String srcPath = srcDir.getPath() + File.separator;
+        String destPath = destDir.getPath() + File.separator;
+        if (destPath.contains(srcPath)) return null;
+        if (!srcDir.exists() || !srcDir.isDirectory()) return null;
+        final CopyResult result = new CopyResult();
+        if (destDir.exists()) {
+            if (listener == null || listener.onReplace()) {// require delete the old directory
+                if (!deleteAllInDir(destDir)) {// unsuccessfully delete then return null
+                    return null;
+                }
+            } else {
+                result.elapsedMillis = System.currentTimeMillis() - startTime;
+                return result;
+            }
+        }
+        if (isMove && renameDir(srcDir, destDir)) {
+            result.renamed = true;
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+            return result;
+        }
+        if (!createOrExistsDir(destDir)) return null;
+        // walk the tree once, creating directories and collecting the files to copy
+        List<File[]> pairs = new ArrayList<>();
+        List<File[]> dirs = new ArrayList<>();
+        dirs.add(new File[]{srcDir, destDir});
+        while (!dirs.isEmpty()) {
+            File[] dir = dirs.remove(dirs.size() - 1);
+            File[] files = dir[0].listFiles();
+            if (files == null) {
+                result.failures.add(dir[0]);
+                continue;
+            }
+            for (File file : files) {
+                File oneDestFile = new File(dir[1], file.getName());
+                if (file.isFile()) {
+                    pairs.add(new File[]{file, oneDestFile});
+                } else if (file.isDirectory()) {
+                    if (createOrExistsDir(oneDestFile)) {
+                        dirs.add(new File[]{file, oneDestFile});
+                    } else {
+                        result.failures.add(file);
+                    }
+                }
+            }
+        }
+        // the tasks run at once, so serialize the calls of listener
+        final OnReplaceListener serialListener = listener == null ? null : new OnReplaceListener() {
+            @Override
+            public synchronized boolean onReplace() {
+                return listener.onReplace();
+            }
+        };
+        final CountDownLatch latch = new CountDownLatch(pairs.size());
+        for (final File[] pair : pairs) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long length = pair[0].length();
+                        // the rename of directory failed, so don't try it again for every file
+                        CopyStrategy strategy = copyOrMoveFileWithStrategy(pair[0], pair[1], serialListener,
+                                isMove, false);
+                        if (strategy == null) {
+                            result.failures.add(pair[0]);
+                        } else if (strategy != CopyStrategy.SKIPPED) {
+                            result.fileCount.incrementAndGet();
+                            result.byteCount.addAndGet(length);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                e.printStackTrace();
+                result.failures.add(pair[0]);
+                latch.countDown();
+            }
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.failures.add(srcDir);
+        }
+        if (isMove && result.failures.isEmpty() && !deleteDir(srcDir)) {
+            result.failures.add(srcDir);
+        }
+        result.elapsedMillis = System.currentTimeMillis() - startTime;
+        return result;
+    }
+
     private static boolean copyOrMoveDir(final File srcDir,
                                          final File destDir,
                                          final boolean isMove) {
@@ -428,32 +764,77 @@ public final class FileUtils {
                                          final File destDir,
                                          final OnReplaceListener listener,
                                          final boolean isMove) {
-        if (srcDir == null || destDir == null) return false;
-        // destDir's path locate in srcDir's path then return false
+        return copyOrMoveDirWithStrategy(srcDir, destDir, listener, isMove) != null;
+    }
+
+    private static CopyStrategy copyOrMoveDirWithStrategy(final File srcDir,
+                                                          final File destDir,
+                                                          final OnReplaceListener listener,
+                                                          final boolean isMove) {
+        return copyOrMoveDirWithStrategy(srcDir, destDir, listener, isMove, isMove);
+    }
+
+    private static CopyStrategy copyOrMoveDirWithStrategy(final File srcDir,
+                                                          final File destDir,
+                                                          final OnReplaceListener listener,
+                                                          final boolean isMove,
+                                                          final boolean isRename) {
+        if (srcDir == null || destDir == null) return null;
+        // destDir's path locate in srcDir's path then return null
         String srcPath = srcDir.getPath() + File.separator;
         String destPath = destDir.getPath() + File.separator;
-        if (destPath.contains(srcPath)) return false;
-        if (!srcDir.exists() || !srcDir.isDirectory()) return false;
+        if (destPath.contains(srcPath)) return null;
+        if (!srcDir.exists() || !srcDir.isDirectory()) return null;
         if (destDir.exists()) {
             if (listener == null || listener.onReplace()) {// require delete the old directory
-                if (!deleteAllInDir(destDir)) {// unsuccessfully delete then return false
-                    return false;
+                if (!deleteAllInDir(destDir)) {// unsuccessfully delete then return null
+                    return null;
                 }
             } else {
-                return true;
+                return CopyStrategy.SKIPPED;
             }
         }
-        if (!createOrExistsDir(destDir)) return false;
+        if (isRename && renameDir(srcDir, destDir)) return CopyStrategy.RENAME;
+        if (!createOrExistsDir(destDir)) return null;
+        // the rename of directory failed, e.g. on another file system, so every file below is copied
+        CopyStrategy strategy = CopyStrategy.CHANNEL;
         File[] files = srcDir.listFiles();
+        if (files == null) return null;
         for (File file : files) {
             File oneDestFile = new File(destPath + file.getName());
+            CopyStrategy one = null;
             if (file.isFile()) {
-                if (!copyOrMoveFile(file, oneDestFile, listener, isMove)) return false;
+                one = copyOrMoveFileWithStrategy(file, oneDestFile, listener, isMove, false);
+                if (one == null) return null;
             } else if (file.isDirectory()) {
-                if (!copyOrMoveDir(file, oneDestFile, listener, isMove)) return false;
+                one = copyOrMoveDirWithStrategy(file, oneDestFile, listener, isMove, false);
+                if (one == null) return null;
             }
+            strategy = slowerStrategy(strategy, one);
+        }
+        return !isMove || deleteDir(srcDir) ? strategy : null;
+    }
+
+    private static CopyStrategy slowerStrategy(final CopyStrategy strategy, final CopyStrategy other) {
+        if (strategy == CopyStrategy.STREAM || other == CopyStrategy.STREAM) return CopyStrategy.STREAM;
+        if (strategy == CopyStrategy.CHANNEL || other == CopyStrategy.CHANNEL) return CopyStrategy.CHANNEL;
+        return strategy;// a skipped file doesn't slow the move
+    }
+
+    private static boolean renameDir(final File srcDir, final File destDir) {
+        // the replace has emptied the destination, remove it so the source takes its place
+        if (destDir.exists() && !destDir.delete()) return false;
+        if (!createOrExistsDir(destDir.getAbsoluteFile().getParentFile())) return false;
+        return rename(srcDir, destDir);
+    }
+
+    private static boolean rename(final File src, final File dest) {
+        try {
+            Files.move(src.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {// e.g. on another file system, then copy instead
+            return false;
         }
-        return !isMove || deleteDir(srcDir);
     }
 
     private static boolean copyOrMoveFile(final File srcFile,
@@ -471,27 +852,51 @@ public final class FileUtils {
                                           final File destFile,
                                           final OnReplaceListener listener,
                                           final boolean isMove) {
-        if (srcFile == null || destFile == null) return false;
-        // srcFile equals destFile then return false
-        if (srcFile.equals(destFile)) return false;
-        // srcFile doesn't exist or isn't a file then return false
-        if (!srcFile.exists() || !srcFile.isFile()) return false;
+        return copyOrMoveFileWithStrategy(srcFile, destFile, listener, isMove) != null;
+    }
+
+    private static CopyStrategy copyOrMoveFileWithStrategy(final File srcFile,
+                                                           final File destFile,
+                                                           final OnReplaceListener listener,
+                                                           final boolean isMove) {
+        return copyOrMoveFileWithStrategy(srcFile, destFile, listener, isMove, isMove);
+    }
+
+    private static CopyStrategy copyOrMoveFileWithStrategy(final File srcFile,
+                                                           final File destFile,
+                                                           final OnReplaceListener listener,
+                                                           final boolean isMove,
+                                                           final boolean isRename) {
+        if (srcFile == null || destFile == null) return null;
+        // srcFile equals destFile then return null
+        if (srcFile.equals(destFile)) return null;
+        // srcFile doesn't exist or isn't a file then return null
+        if (!srcFile.exists() || !srcFile.isFile()) return null;
         if (destFile.exists()) {
             if (listener == null || listener.onReplace()) {// require delete the old file
-                if (!destFile.delete()) {// unsuccessfully delete then return false
-                    return false;
+                if (!destFile.delete()) {// unsuccessfully delete then return null
+                    return null;
                 }
             } else {
-                return true;
+                return CopyStrategy.SKIPPED;
             }
         }
-        if (!createOrExistsDir(destFile.getParentFile())) return false;
+        if (!createOrExistsDir(destFile.getParentFile())) return null;
+        if (isRename && rename(srcFile, destFile)) return CopyStrategy.RENAME;
+        CopyStrategy strategy = copyFileContent(srcFile, destFile);
+        if (strategy == null || isMove && !deleteFile(srcFile)) return null;
+        return strategy;
+    }
+
+    private static CopyStrategy copyFileContent(final File srcFile, final File destFile) {
+        if (FileIOUtils.writeFileFromFileByChannel(destFile, srcFile)) return CopyStrategy.CHANNEL;
+        // the channel is unavailable then fall back to stream
         try {
             return FileIOUtils.writeFileFromIS(destFile, new FileInputStream(srcFile), false)
-                    && !(isMove && !deleteFile(srcFile));
+                    ? CopyStrategy.STREAM : null;
         } catch (FileNotFoundException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
@@ -640,6 +1045,89 @@ public final class FileUtils {
         return true;
     }
 
+    /**
+     * Delete the directory in parallel.
+     *
+     * @param dirPath     The path of directory.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteDirParallel(final String dirPath, final int parallelism) {
+        return deleteDirParallel(getFileByPath(dirPath), parallelism);
+    }
+
+    /**
+     * Delete the directory in parallel.
+     * <p>Unlike {@link #deleteDir(File)}, the deletion goes on past failures and collects them into
+     * the result, see {@link ParallelDeleter}.</p>
+     *
+     * @param dir         The directory.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteDirParallel(final File dir, final int parallelism) {
+        if (parallelism <= 0) return null;
+        return new ParallelDeleter(parallelism).deleteDir(dir);
+    }
+
+    /**
+     * Delete the all in directory in parallel.
+     *
+     * @param dirPath     The path of directory.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteAllInDirParallel(final String dirPath, final int parallelism) {
+        return deleteAllInDirParallel(getFileByPath(dirPath), parallelism);
+    }
+
+    /**
+     * Delete the all in directory in parallel.
+     *
+     * @param dir         The directory.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteAllInDirParallel(final File dir, final int parallelism) {
+        return deleteFilesInDirWithFilterParallel(dir, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return true;
+            }
+        }, parallelism);
+    }
+
+    /**
+     * Delete all files that satisfy the filter in directory in parallel.
+     *
+     * @param dirPath     The path of directory.
+     * @param filter      The filter.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteFilesInDirWithFilterParallel(final String dirPath,
+                                                                            final FileFilter filter,
+                                                                            final int parallelism) {
+        return deleteFilesInDirWithFilterParallel(getFileByPath(dirPath), filter, parallelism);
+    }
+
+    /**
+     * Delete all files that satisfy the filter in directory in parallel.
+     * <p>The filter applies to the files and directories in directory, and an accepted
+     * directory is deleted with all in it.</p>
+     *
+     * @param dir         The directory.
+     * @param filter      The filter.
+     * @param parallelism The number of threads which delete.
+     * @return the result of deletion, {@code null} if fail
+     */
+    public static ParallelDeleter.Result deleteFilesInDirWithFilterParallel(final File dir,
+                                                                            final FileFilter filter,
+                                                                            final int parallelism) {
+        if (parallelism <= 0) return null;
+        return new ParallelDeleter(parallelism).deleteFilesInDirWithFilter(dir, filter);
+    }
+
     /**
      * Return the files in directory.
      * <p>Doesn't traverse subdirectories</p>
@@ -740,21 +1228,175 @@ public final class FileUtils {
     public static List<File> listFilesInDirWithFilter(final File dir,
                                                       final FileFilter filter,
                                                       final boolean isRecursive) {
-        if (!isDir(dir)) return null;
-        List<File> list = new ArrayList<>();
-        File[] files = dir.listFiles();
-        if (files != null && files.length != 0) {
-            for (File file : files) {
-                if (filter.accept(file)) {
-                    list.add(file);
+        return listFilesInDirWithFilter(dir, filter, isRecursive ? Integer.MAX_VALUE : 1, null);
+    }
+
+    /**
+     * Return the files that satisfy the filter in directory.
+     *
+     * @param dirPath   The path of directory.
+     * @param filter    The filter.
+     * @param maxDepth  The max depth of files, 1 for the files in directory only.
+     * @param dirFilter The filter of subdirectories to traverse, {@code null} to traverse all.
+     * @return the files that satisfy the filter in directory
+     */
+    public static List<File> listFilesInDirWithFilter(final String dirPath,
+                                                      final FileFilter filter,
+                                                      final int maxDepth,
+                                                      final FileFilter dirFilter) {
+        return listFilesInDirWithFilter(getFileByPath(dirPath), filter, maxDepth, dirFilter);
+    }
+
+    /**
+     * Return the files that satisfy the filter in directory.
+     * <p>Files are listed in pre-order by {@link #walkDir(File, int, OnWalkListener)}. A subdirectory
+     * refused by the dir filter is still passed to the filter, but its subtree is pruned.</p>
+     *
+     * @param dir       The directory.
+     * @param filter    The filter.
+     * @param maxDepth  The max depth of files, 1 for the files in directory only.
+     * @param dirFilter The filter of subdirectories to traverse, {@code null} to traverse all.
+     * @return the files that satisfy the filter in directory
+     */
+    public static List<File> listFilesInDirWithFilter(final File dir,
+                                                      final FileFilter filter,
+                                                      final int maxDepth,
+                                                      final FileFilter dirFilter) {
+        if (!isDir(dir) || filter == null) return null;
+        final List<File> list = new ArrayList<>();
+        walkDir(dir, maxDepth, new OnWalkListener() {
+            @Override
+            public boolean onPreVisitDir(Path subDir, BasicFileAttributes attrs) {
+                File file = subDir.toFile();
+                if (filter.accept(file)) list.add(file);
+                return dirFilter == null || dirFilter.accept(file);
+            }
+
+            @Override
+            public boolean onVisitFile(Path path, BasicFileAttributes attrs) {
+                File file = path.toFile();
+                if (filter.accept(file)) list.add(file);
+                return true;
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Walk the directory.
+     *
+     * @param dirPath  The path of directory.
+     * @param maxDepth The max depth of files, 1 for the files in directory only.
+     * @param listener The listener.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean walkDir(final String dirPath, final int maxDepth, final OnWalkListener listener) {
+        return walkDir(getFileByPath(dirPath), maxDepth, listener);
+    }
+
+    /**
+     * Walk the directory in pre-order by {@link Files#walkFileTree}, following symbolic links.
+     * <p>The attributes passed to the listener come from the walk itself, so no file is
+     * stat again. The directory itself isn't passed to the listener. A subdirectory is passed to
+     * {@link OnWalkListener#onPreVisitDir} before its files, unless it is at max depth, can't be
+     * read or closes a cycle of links; then it is passed to {@link OnWalkListener#onVisitFile}
+     * like a file, with {@code null} attributes if it can't be read.</p>
+     *
+     * @param dir      The directory.
+     * @param maxDepth The max depth of files, 1 for the files in directory only.
+     * @param listener The listener.
+     * @return {@code true}: success<br>{@code false}: fail, e.g. the directory can't be read
+     */
+    public static boolean walkDir(final File dir, final int maxDepth, final OnWalkListener listener) {
+        if (!isDir(dir) || maxDepth < 0 || listener == null) return false;
+        if (maxDepth == 0) return true;// the walk would pass the directory itself as a file
+        final Path root = dir.toPath();
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+                    if (subDir.equals(root)) return FileVisitResult.CONTINUE;
+                    return listener.onPreVisitDir(subDir, attrs)
+                            ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
                 }
-                if (isRecursive && file.isDirectory()) {
-                    //noinspection ConstantConditions
-                    list.addAll(listFilesInDirWithFilter(file, filter, true));
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    return listener.onVisitFile(file, attrs)
+                            ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
                 }
-            }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    if (file.equals(root)) throw exc;
+                    // unreadable, or a cycle of links, which is listed but not entered
+                    BasicFileAttributes attrs = exc instanceof FileSystemLoopException ? readAttributes(file) : null;
+                    return listener.onVisitFile(file, attrs)
+                            ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path subDir, IOException exc) {
+                    // a directory which fails while being read keeps the files listed so far
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-        return list;
+    }
+
+    /**
+     * Return the lazy stream of paths in directory.
+     *
+     * @param dirPath   The path of directory.
+     * @param maxDepth  The max depth of paths, 1 for the paths in directory only.
+     * @param dirFilter The filter of subdirectories to traverse, {@code null} to traverse all.
+     * @return the lazy stream of paths in directory, which must be closed
+     */
+    public static Stream<Path> walkDirLazily(final String dirPath,
+                                             final int maxDepth,
+                                             final Predicate<Path> dirFilter) {
+        return walkDirLazily(getFileByPath(dirPath), maxDepth, dirFilter);
+    }
+
+    /**
+     * Return the lazy stream of paths in directory.
+     * <p>Paths are produced in the same pre-order as {@link #walkDir(File, int, OnWalkListener)}
+     * while the stream is consumed, so only the directories on the current branch are held open
+     * and a huge tree is never held in memory. The directory itself isn't included, unreadable
+     * subdirectories are included but not entered, and symbolic links are followed.</p>
+     * <p>Only the paths above {@code maxDepth} which pass the filter are stat, to tell whether to
+     * enter them. The filter sees those paths before they are known to be directories, and
+     * rejecting a file has no effect.</p>
+     *
+     * @param dir       The directory.
+     * @param maxDepth  The max depth of paths, 1 for the paths in directory only.
+     * @param dirFilter The filter of subdirectories to traverse, {@code null} to traverse all.
+     * @return the lazy stream of paths in directory, which must be closed
+     */
+    public static Stream<Path> walkDirLazily(final File dir,
+                                             final int maxDepth,
+                                             final Predicate<Path> dirFilter) {
+        if (!isDir(dir) || maxDepth < 0) return null;
+        final PathIterator iterator;
+        try {
+            iterator = new PathIterator(dir.toPath(), maxDepth, dirFilter);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        ).onClose(new Runnable() {
+            @Override
+            public void run() {
+                iterator.close();
+            }
+        });
     }
 
     /**
@@ -843,18 +1485,18 @@ public final class FileUtils {
     public static int getFileLines(final File file) {
         int count = 1;
         InputStream is = null;
+        byte[] buffer = BufferPool.getDefault().acquire(8192);
         try {
-            is = new BufferedInputStream(new FileInputStream(file));
-            byte[] buffer = new byte[1024];
+            is = new FileInputStream(file);
             int readChars;
             if (LINE_SEP.endsWith("\n")) {
-                while ((readChars = is.read(buffer, 0, 1024)) != -1) {
+                while ((readChars = is.read(buffer, 0, buffer.length)) != -1) {
                     for (int i = 0; i < readChars; ++i) {
                         if (buffer[i] == '\n') ++count;
                     }
                 }
             } else {
-                while ((readChars = is.read(buffer, 0, 1024)) != -1) {
+                while ((readChars = is.read(buffer, 0, buffer.length)) != -1) {
                     for (int i = 0; i < readChars; ++i) {
                         if (buffer[i] == '\r') ++count;
                     }
@@ -863,6 +1505,7 @@ public final class FileUtils {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            BufferPool.getDefault().release(buffer);
             try {
                 if (is != null) {
                     is.close();
@@ -874,6 +1517,47 @@ public final class FileUtils {
         return count;
     }
 
+    /**
+     * Return the number of lines of file by scanning it in parallel.
+     *
+     * @param filePath    The path of file.
+     * @param parallelism The number of threads which scan the file.
+     * @return the number of lines of file, {@code -1} if fail
+     */
+    public static long getFileLinesParallel(final String filePath, final int parallelism) {
+        return getFileLinesParallel(getFileByPath(filePath), parallelism);
+    }
+
+    /**
+     * Return the number of lines of file by scanning it in parallel.
+     * <p>Lines are separated by {@code '\n'}.</p>
+     *
+     * @param file        The file.
+     * @param parallelism The number of threads which scan the file.
+     * @return the number of lines of file, {@code -1} if fail
+     */
+    public static long getFileLinesParallel(final File file, final int parallelism) {
+        if (!isFile(file)) return -1;
+        if (file.length() == 0) return 1;
+        Long count = ParallelFileScanner.scan(file, parallelism,
+                new ParallelFileScanner.RangeScanner<Long>() {
+                    @Override
+                    public Long scan(ByteBuffer range, long position) {
+                        long count = 0;
+                        for (int i = range.position(), limit = range.limit(); i < limit; ++i) {
+                            if (range.get(i) == '\n') ++count;
+                        }
+                        return count;
+                    }
+                }, new BinaryOperator<Long>() {
+                    @Override
+                    public Long apply(Long a, Long b) {
+                        return a + b;
+                    }
+                });
+        return count == null ? -1 : count + 1;
+    }
+
     /**
      * Return the size of directory.
      *
@@ -949,6 +1633,55 @@ public final class FileUtils {
         return len;
     }
 
+    /**
+     * Return the length of directory in parallel.
+     *
+     * @param dirPath     The path of directory.
+     * @param parallelism The number of threads which read directories.
+     * @return the length of directory
+     */
+    public static long getDirLengthParallel(final String dirPath, final int parallelism) {
+        return getDirLengthParallel(getFileByPath(dirPath), parallelism);
+    }
+
+    /**
+     * Return the length of directory in parallel.
+     * <p>Symbolic links are not followed, see {@link DirSizeCalculator} for counts, lengths of
+     * subdirectories and timeouts.</p>
+     *
+     * @param dir         The directory.
+     * @param parallelism The number of threads which read directories.
+     * @return the length of directory
+     */
+    public static long getDirLengthParallel(final File dir, final int parallelism) {
+        if (!isDir(dir) || parallelism <= 0) return -1;
+        DirSizeCalculator.Result result = new DirSizeCalculator(parallelism).calculate(dir);
+        return result == null ? -1 : result.getLength();
+    }
+
+    /**
+     * Return the size of directory in parallel.
+     *
+     * @param dirPath     The path of directory.
+     * @param parallelism The number of threads which read directories.
+     * @return the size of directory
+     */
+    public static String getDirSizeParallel(final String dirPath, final int parallelism) {
+        return getDirSizeParallel(getFileByPath(dirPath), parallelism);
+    }
+
+    /**
+     * Return the size of directory in parallel.
+     *
+     * @param dir         The directory.
+     * @param parallelism The number of threads which read directories.
+     * @return the size of directory
+     */
+    public static String getDirSizeParallel(final File dir, final int parallelism) {
+        long len = getDirLengthParallel(dir, parallelism);
+        return len == -1 ? "" : byte2FitMemorySize(len);
+    }
+
     /**
      * Return the length of file.
      *
@@ -1024,11 +1757,11 @@ public final class FileUtils {
     public static byte[] getFileMD5(final File file) {
         if (file == null) return null;
         DigestInputStream dis = null;
+        byte[] buffer = BufferPool.getDefault().acquire(1024 * 256);
         try {
             FileInputStream fis = new FileInputStream(file);
             MessageDigest md = MessageDigest.getInstance("MD5");
             dis = new DigestInputStream(fis, md);
-            byte[] buffer = new byte[1024 * 256];
             while (true) {
                 if (!(dis.read(buffer) > 0)) break;
             }
@@ -1037,6 +1770,7 @@ public final class FileUtils {
         } catch (NoSuchAlgorithmException | IOException e) {
             e.printStackTrace();
         } finally {
+            BufferPool.getDefault().release(buffer);
             try {
                 if (dis != null) {
                     dis.close();
@@ -1192,7 +1926,245 @@ public final class FileUtils {
         return true;
     }
 
+    private static BasicFileAttributes readAttributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            try {// a broken link
+                return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ignored) {
+                return null;
+            }
+        }
+    }
+
     public interface OnReplaceListener {
         boolean onReplace();
     }
+
+    public interface OnWalkListener {
+        /**
+         * @return {@code true}: enter the directory<br>{@code false}: prune its subtree
+         */
+        boolean onPreVisitDir(Path dir, BasicFileAttributes attrs);
+
+        /**
+         * @return {@code true}: continue<br>{@code false}: stop walking
+         */
+        boolean onVisitFile(Path file, BasicFileAttributes attrs);
+    }
+
+    /**
+     * The strategy which copied a file.
+     */
+    public enum CopyStrategy {
+        /**
+         * Transferred by {@link java.nio.channels.FileChannel#transferTo}.
+         */
+        CHANNEL,
+        /**
+         * Pumped through a heap buffer by stream.
+         */
+        STREAM,
+        /**
+         * The destination exists and the replace listener refused to replace it.
+         */
+        SKIPPED,
+        /**
+         * Renamed by {@link Files#move} on the same file system, no byte was copied.
+         */
+        RENAME
+    }
+
+    /**
+     * The result of copying or moving a directory in parallel.
+     */
+    public static final class CopyResult {
+
+        private final AtomicLong fileCount = new AtomicLong();
+        private final AtomicLong byteCount = new AtomicLong();
+        private final Queue<File> failures = new ConcurrentLinkedQueue<>();
+        private volatile boolean renamed;
+        private volatile long elapsedMillis;
+
+        private CopyResult() {
+        }
+
+        /**
+         * Return the number of files which were copied or moved, 0 if the directory was renamed.
+         *
+         * @return the number of files which were copied or moved
+         */
+        public long getFileCount() {
+            return fileCount.get();
+        }
+
+        /**
+         * Return the number of bytes which were copied, 0 if the directory was renamed.
+         *
+         * @return the number of bytes which were copied
+         */
+        public long getByteCount() {
+            return byteCount.get();
+        }
+
+        /**
+         * Return the source files or directories which failed.
+         *
+         * @return the source files or directories which failed
+         */
+        public List<File> getFailures() {
+            return new ArrayList<>(failures);
+        }
+
+        /**
+         * Return the elapsed time in milliseconds.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Return whether the directory was moved by renaming it at once, so no file was copied or
+         * counted.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isRenamed() {
+            return renamed;
+        }
+
+        /**
+         * Return whether nothing failed.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "CopyResult{files=" + getFileCount()
+                    + ", bytes=" + getByteCount()
+                    + ", renamed=" + renamed
+                    + ", failures=" + failures.size()
+                    + ", elapsedMillis=" + elapsedMillis + "}";
+        }
+    }
+
+    /**
+     * The lazy pre-order iterator of paths in directory.
+     */
+    private static final class PathIterator implements Iterator<Path>, Closeable {
+
+        private final Deque<DirFrame> mStack = new ArrayDeque<>();
+        private final int mMaxDepth;
+        private final Predicate<Path> mDirFilter;
+        private Path mNext;
+
+        private PathIterator(final Path root, final int maxDepth, final Predicate<Path> dirFilter)
+                throws IOException {
+            mMaxDepth = maxDepth;
+            mDirFilter = dirFilter;
+            if (maxDepth > 0) mStack.push(new DirFrame(root, readAttributes(root)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (mNext == null && !mStack.isEmpty()) {
+                DirFrame frame = mStack.peek();
+                Path path;
+                try {
+                    if (!frame.iterator.hasNext()) {
+                        mStack.pop().close();
+                        continue;
+                    }
+                    path = frame.iterator.next();
+                } catch (DirectoryIteratorException e) {// failed while reading, skip the rest
+                    e.printStackTrace();
+                    mStack.pop().close();
+                    continue;
+                }
+                mNext = path;
+                if (mStack.size() < mMaxDepth) enter(path);
+            }
+            return mNext != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Path path = mNext;
+            mNext = null;
+            return path;
+        }
+
+        @Override
+        public void close() {
+            while (!mStack.isEmpty()) {
+                mStack.pop().close();
+            }
+            mNext = null;
+        }
+
+        private void enter(final Path dir) {
+            // the filter goes first, so a rejected path is never stat
+            if (mDirFilter != null && !mDirFilter.test(dir)) return;
+            // a directory stream supplies no attributes, so one stat tells directories and their keys
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+            } catch (IOException e) {// a broken link or gone, not to enter
+                return;
+            }
+            if (!attrs.isDirectory() || isLoop(dir, attrs)) return;
+            try {
+                mStack.push(new DirFrame(dir, attrs));
+            } catch (IOException e) {// unreadable, listed but not entered
+                e.printStackTrace();
+            }
+        }
+
+        private boolean isLoop(final Path dir, final BasicFileAttributes attrs) {
+            Object key = attrs.fileKey();
+            for (DirFrame frame : mStack) {
+                if (key != null && frame.key != null) {
+                    if (key.equals(frame.key)) return true;
+                } else {
+                    try {
+                        if (Files.isSameFile(dir, frame.dir)) return true;
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class DirFrame implements Closeable {
+
+        private final Path dir;
+        private final Object key;
+        private final DirectoryStream<Path> stream;
+        private final Iterator<Path> iterator;
+
+        private DirFrame(final Path dir, final BasicFileAttributes attrs) throws IOException {
+            this.dir = dir;
+            this.key = attrs == null ? null : attrs.fileKey();
+            this.stream = Files.newDirectoryStream(dir);
+            this.iterator = stream.iterator();
+        }
+
+        @Override
+        public void close() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 }
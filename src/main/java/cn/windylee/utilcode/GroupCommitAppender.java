@@ -0,0 +1,283 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     desc  : long-lived appender which groups concurrent appends into one write
+ * </pre>
+ * <p>The file stays open for the life of the appender. Appends from any thread are queued, and
+ * a single flusher thread writes them in batches: a batch is written once it reaches
+ * {@code maxBatchBytes} or once its first record has waited {@code flushIntervalMillis}, with one
+ * gathering write and, if forced, one {@link FileChannel#force(boolean)} for the whole batch.</p>
+ */
+public final class GroupCommitAppender implements Closeable {
+
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final FileChannel mChannel;
+    private final String mCharsetName;
+    private final long mFlushIntervalNanos;
+    private final int mMaxBatchBytes;
+    private final boolean mIsForce;
+    private final BlockingQueue<Record> mQueue = new LinkedBlockingQueue<>();
+    private final Thread mFlusher;
+    private volatile boolean mRunning = true;
+
+    private volatile long mBatchCount;
+    private volatile long mRecordCount;
+    private volatile long mByteCount;
+    private volatile long mMaxBatchSize;
+    private volatile long mTotalLatencyNanos;
+    private volatile long mMaxLatencyNanos;
+
+    private GroupCommitAppender(final File file,
+                                final FileChannel channel,
+                                final String charsetName,
+                                final long flushIntervalMillis,
+                                final int maxBatchBytes,
+                                final boolean isForce) {
+        mChannel = channel;
+        mCharsetName = charsetName;
+        mFlushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        mMaxBatchBytes = maxBatchBytes;
+        mIsForce = isForce;
+        mFlusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "group-commit-" + file.getName());
+        mFlusher.setDaemon(true);
+        mFlusher.start();
+    }
+
+    /**
+     * Open the appender.
+     *
+     * @param file                The file.
+     * @param charsetName         The name of charset for strings, {@code null} for the default charset.
+     * @param flushIntervalMillis The max time in milliseconds an append waits for its batch.
+     * @param maxBatchBytes       The bytes which trigger a write of batch.
+     * @param isForce             True to force every batch to the storage device, false otherwise.
+     * @return the appender, {@code null} if fail
+     */
+    public static GroupCommitAppender open(final File file,
+                                           final String charsetName,
+                                           final long flushIntervalMillis,
+                                           final int maxBatchBytes,
+                                           final boolean isForce) {
+        if (file == null || flushIntervalMillis < 0 || maxBatchBytes <= 0) return null;
+        if (!FileUtils.createOrExistsDir(file.getAbsoluteFile().getParentFile())) return null;
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return new GroupCommitAppender(file, channel, charsetName,
+                    flushIntervalMillis, maxBatchBytes, isForce);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Append the string.
+     *
+     * @param content The string of content.
+     * @return the future of {@code true}: success<br>{@code false}: fail, completed once its batch is written
+     */
+    public CompletableFuture<Boolean> append(final String content) {
+        if (content == null) return CompletableFuture.completedFuture(false);
+        try {
+            return append(mCharsetName == null || mCharsetName.trim().isEmpty()
+                    ? content.getBytes() : content.getBytes(mCharsetName));
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Append the bytes.
+     *
+     * @param bytes The bytes, which must not be modified until the future completes.
+     * @return the future of {@code true}: success<br>{@code false}: fail, completed once its batch is written
+     */
+    public CompletableFuture<Boolean> append(final byte[] bytes) {
+        if (bytes == null || !mRunning) return CompletableFuture.completedFuture(false);
+        Record record = new Record(bytes);
+        mQueue.add(record);
+        // closed while queuing, the flusher may have exited already
+        if (!mRunning && mQueue.remove(record)) record.future.complete(false);
+        return record.future;
+    }
+
+    /**
+     * Return the number of written batches.
+     *
+     * @return the number of written batches
+     */
+    public long getBatchCount() {
+        return mBatchCount;
+    }
+
+    /**
+     * Return the number of written records.
+     *
+     * @return the number of written records
+     */
+    public long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Return the number of written bytes.
+     *
+     * @return the number of written bytes
+     */
+    public long getByteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * Return the average number of records in a batch.
+     *
+     * @return the average number of records in a batch
+     */
+    public double getAverageBatchSize() {
+        long batches = mBatchCount;
+        return batches == 0 ? 0 : (double) mRecordCount / batches;
+    }
+
+    /**
+     * Return the max number of records in a batch.
+     *
+     * @return the max number of records in a batch
+     */
+    public long getMaxBatchSize() {
+        return mMaxBatchSize;
+    }
+
+    /**
+     * Return the average time in microseconds from append to written.
+     *
+     * @return the average latency in microseconds
+     */
+    public double getAverageLatencyMicros() {
+        long records = mRecordCount;
+        return records == 0 ? 0 : mTotalLatencyNanos / 1000.0 / records;
+    }
+
+    /**
+     * Return the max time in microseconds from append to written.
+     *
+     * @return the max latency in microseconds
+     */
+    public long getMaxLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(mMaxLatencyNanos);
+    }
+
+    /**
+     * Write the queued appends and close the file.
+     */
+    @Override
+    public void close() {
+        mRunning = false;
+        try {
+            mFlusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        CloseUtils.closeIO(mChannel);
+    }
+
+    private void flushLoop() {
+        List<Record> batch = new ArrayList<>();
+        while (mRunning || !mQueue.isEmpty()) {
+            try {
+                Record first = mQueue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long bytes = first.bytes.length;
+                long deadline = first.createNanos + mFlushIntervalNanos;
+                while (bytes < mMaxBatchBytes) {
+                    Record record = mQueue.poll();
+                    if (record == null) {
+                        long wait = deadline - System.nanoTime();
+                        if (wait <= 0 || !mRunning) break;
+                        record = mQueue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (record == null) break;
+                    }
+                    batch.add(record);
+                    bytes += record.bytes.length;
+                }
+                commit(batch, bytes);
+            } catch (InterruptedException e) {
+                mRunning = false;
+            } finally {
+                for (Record record : batch) {
+                    record.future.complete(false);// no-op if already committed
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(final List<Record> batch, final long bytes) {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        for (int i = 0; i < buffers.length; ++i) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i).bytes);
+        }
+        boolean success;
+        try {
+            long written = 0;
+            while (written < bytes) {
+                written += mChannel.write(buffers);
+            }
+            if (mIsForce) mChannel.force(false);
+            success = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            success = false;
+        }
+        long now = System.nanoTime();
+        long totalLatency = 0;
+        long maxLatency = mMaxLatencyNanos;
+        for (Record record : batch) {
+            long latency = now - record.createNanos;
+            totalLatency += latency;
+            if (latency > maxLatency) maxLatency = latency;
+            record.future.complete(success);
+        }
+        if (!success) return;
+        mBatchCount++;
+        mRecordCount += batch.size();
+        mByteCount += bytes;
+        mTotalLatencyNanos += totalLatency;
+        mMaxLatencyNanos = maxLatency;
+        if (batch.size() > mMaxBatchSize) mMaxBatchSize = batch.size();
+    }
+
+    private static final class Record {
+
+        private final byte[] bytes;
+        private final long createNanos = System.nanoTime();
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Record(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package cn.windylee.utilcode;
+
+/**
+ * <pre>
+ *     desc  : immutable options of file io
+ * </pre>
+ * <p>Options are passed to each call of {@link FileIOUtils}, so components in one JVM can tune
+ * their own io without touching global state. Build them by {@link #builder()} or derive
+ * them from existing options by {@link #newBuilder()}.</p>
+ */
+public final class IoOptions {
+
+    /**
+     * The default size of buffer, 8192 bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The default options: 8192 bytes of heap buffer, no force, default charset, no append, not atomic.
+     */
+    public static final IoOptions DEFAULT = builder().build();
+
+    private final int mBufferSize;
+    private final boolean mDirect;
+    private final boolean mForce;
+    private final String mCharsetName;
+    private final boolean mAppend;
+    private final boolean mAtomic;
+
+    private IoOptions(final Builder builder) {
+        mBufferSize = builder.bufferSize;
+        mDirect = builder.direct;
+        mForce = builder.force;
+        mCharsetName = builder.charsetName;
+        mAppend = builder.append;
+        mAtomic = builder.atomic;
+    }
+
+    /**
+     * Return a builder of default options.
+     *
+     * @return a builder of default options
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Return a builder initialized from these options.
+     *
+     * @return a builder initialized from these options
+     */
+    public Builder newBuilder() {
+        Builder builder = new Builder();
+        builder.bufferSize = mBufferSize;
+        builder.direct = mDirect;
+        builder.force = mForce;
+        builder.charsetName = mCharsetName;
+        builder.append = mAppend;
+        builder.atomic = mAtomic;
+        return builder;
+    }
+
+    /**
+     * Return the size of buffer.
+     *
+     * @return the size of buffer
+     */
+    public int getBufferSize() {
+        return mBufferSize;
+    }
+
+    /**
+     * Return whether channel io goes through a direct buffer.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isDirect() {
+        return mDirect;
+    }
+
+    /**
+     * Return whether written data is forced to the storage device before returning.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isForce() {
+        return mForce;
+    }
+
+    /**
+     * Return the name of charset.
+     *
+     * @return the name of charset, {@code null} for the default charset
+     */
+    public String getCharsetName() {
+        return mCharsetName;
+    }
+
+    /**
+     * Return whether to append to the file.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isAppend() {
+        return mAppend;
+    }
+
+    /**
+     * Return whether to write a temporary file and rename it over the file.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isAtomic() {
+        return mAtomic;
+    }
+
+    @Override
+    public String toString() {
+        return "IoOptions{bufferSize=" + mBufferSize
+                + ", direct=" + mDirect
+                + ", force=" + mForce
+                + ", charsetName=" + mCharsetName
+                + ", append=" + mAppend
+                + ", atomic=" + mAtomic + "}";
+    }
+
+    public static final class Builder {
+
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private boolean direct;
+        private boolean force;
+        private String charsetName;
+        private boolean append;
+        private boolean atomic;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the size of buffer.
+         *
+         * @param bufferSize The size of buffer.
+         * @return the builder
+         */
+        public Builder bufferSize(final int bufferSize) {
+            if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize <= 0: " + bufferSize);
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Set whether channel io goes through a direct buffer.
+         *
+         * @param direct True to use direct buffer, false otherwise.
+         * @return the builder
+         */
+        public Builder direct(final boolean direct) {
+            this.direct = direct;
+            return this;
+        }
+
+        /**
+         * Set whether written data is forced to the storage device before returning.
+         *
+         * @param force True to force, false otherwise.
+         * @return the builder
+         */
+        public Builder force(final boolean force) {
+            this.force = force;
+            return this;
+        }
+
+        /**
+         * Set the name of charset.
+         *
+         * @param charsetName The name of charset, {@code null} for the default charset.
+         * @return the builder
+         */
+        public Builder charset(final String charsetName) {
+            this.charsetName = charsetName;
+            return this;
+        }
+
+        /**
+         * Set whether to append to the file.
+         *
+         * @param append True to append, false otherwise.
+         * @return the builder
+         */
+        public Builder append(final boolean append) {
+            this.append = append;
+            return this;
+        }
+
+        /**
+         * Set whether to write a temporary file in the same directory and rename it over the file
+         * by {@link java.nio.file.StandardCopyOption#ATOMIC_MOVE}, so readers never see a torn file.
+         * <p>It can't be combined with append.</p>
+         *
+         * @param atomic True to write atomically, false otherwise.
+         * @return the builder
+         */
+        public Builder atomic(final boolean atomic) {
+            this.atomic = atomic;
+            return this;
+        }
+
+        /**
+         * Return the options.
+         *
+         * @return the options
+         */
+        public IoOptions build() {
+            return new IoOptions(this);
+        }
+    }
+}
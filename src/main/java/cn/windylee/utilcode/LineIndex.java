@@ -0,0 +1,199 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ *     desc  : sampled index of line offsets in file
+ * </pre>
+ * <p>The index is built in a single pass and records the byte offset of every
+ * {@code interval}-th line, so a range read only has to skip fewer than
+ * {@code interval} lines after seeking. It is bound to the last modified time and
+ * the length of the file and has to be rebuilt once {@link #isValid()} returns false.</p>
+ * <p>Offsets are found by scanning bytes for {@code '\n'} and {@code '\r'}, so the index
+ * only serves charsets which encode them as single bytes, e.g. UTF-8, GBK or ISO-8859-1.</p>
+ */
+public final class LineIndex {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File mFile;
+    private final int mInterval;
+    private final long mLastModified;
+    private final long mLength;
+    private final long[] mOffsets;
+    private final int mLineCount;
+
+    private LineIndex(final File file,
+                      final int interval,
+                      final long lastModified,
+                      final long length,
+                      final long[] offsets,
+                      final int lineCount) {
+        mFile = file;
+        mInterval = interval;
+        mLastModified = lastModified;
+        mLength = length;
+        mOffsets = offsets;
+        mLineCount = lineCount;
+    }
+
+    /**
+     * Build the index of file.
+     *
+     * @param file     The file.
+     * @param interval The number of lines between two sampled offsets.
+     * @return the index of file, {@code null} if fail
+     */
+    public static LineIndex build(final File file, final int interval) {
+        if (file == null || !file.isFile() || interval <= 0) return null;
+        long lastModified = file.lastModified();
+        InputStream is = null;
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            is = new FileInputStream(file);
+            Builder builder = new Builder(interval);
+            long pos = 0;
+            boolean pendingCR = false;
+            int len;
+            while ((len = is.read(buffer, 0, BUFFER_SIZE)) != -1) {
+                for (int i = 0; i < len; ++i, ++pos) {
+                    byte b = buffer[i];
+                    if (pendingCR) {
+                        pendingCR = false;
+                        // "\r\n" is one separator, a lone '\r' ends the line before this byte
+                        if (b == '\n') {
+                            builder.startLine(pos + 1);
+                            continue;
+                        }
+                        builder.startLine(pos);
+                    }
+                    if (b == '\r') {
+                        pendingCR = true;
+                    } else if (b == '\n') {
+                        builder.startLine(pos + 1);
+                    }
+                }
+            }
+            if (pendingCR) builder.startLine(pos);
+            // a separator at the end of file doesn't start another line
+            int lineCount = builder.lastStart < pos ? builder.line : builder.line - 1;
+            return new LineIndex(file, interval, lastModified, pos,
+                    Arrays.copyOf(builder.offsets, builder.offsetCount), lineCount);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            BufferPool.getDefault().release(buffer);
+            CloseUtils.closeIO(is);
+        }
+    }
+
+    /**
+     * Return the file of index.
+     *
+     * @return the file of index
+     */
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Return the number of lines between two sampled offsets.
+     *
+     * @return the number of lines between two sampled offsets
+     */
+    public int getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Return the number of lines in file when the index was built.
+     *
+     * @return the number of lines in file
+     */
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * Return whether the file is unchanged since the index was built.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isValid() {
+        return mFile.isFile()
+                && mFile.lastModified() == mLastModified
+                && mFile.length() == mLength;
+    }
+
+    /**
+     * Return whether the index can serve the charset.
+     *
+     * @param charsetName The name of charset, {@code null} for the default charset.
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public boolean isCharsetSupported(final String charsetName) {
+        Charset charset;
+        try {
+            charset = charsetName == null || charsetName.trim().isEmpty()
+                    ? Charset.defaultCharset() : Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+    }
+
+    /**
+     * Return the line whose offset is sampled nearest before the given line.
+     *
+     * @param line The line's index, starting from 1.
+     * @return the sampled line's index
+     */
+    int getSampledLine(final int line) {
+        return getSampledIndex(line) * mInterval + 1;
+    }
+
+    /**
+     * Return the byte offset of {@link #getSampledLine(int)}.
+     *
+     * @param line The line's index, starting from 1.
+     * @return the byte offset
+     */
+    long getSampledOffset(final int line) {
+        return mOffsets[getSampledIndex(line)];
+    }
+
+    private int getSampledIndex(final int line) {
+        int index = line <= 1 ? 0 : (line - 1) / mInterval;
+        return Math.min(index, mOffsets.length - 1);
+    }
+
+    private static final class Builder {
+
+        private final int interval;
+        private long[] offsets = new long[16];
+        private int offsetCount = 1;// line 1 starts at offset 0
+        private int line = 1;
+        private long lastStart;
+
+        private Builder(final int interval) {
+            this.interval = interval;
+        }
+
+        private void startLine(final long start) {
+            ++line;
+            lastStart = start;
+            if ((line - 1) % interval != 0) return;
+            if (offsetCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsetCount << 1);
+            }
+            offsets[offsetCount++] = start;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <pre>
+ *     desc  : read file as a sequence of mapped windows
+ * </pre>
+ * <p>Only one window of at most {@link #getWindowSize()} bytes is mapped at a time, so files
+ * larger than 2 GB can be scanned without copying them onto the heap. Every window is a
+ * read-only buffer whose position 0 is at {@code index * windowSize} in the file.</p>
+ */
+public final class MappedFileReader implements Closeable {
+
+    /**
+     * The default size of window, 64 MB.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final long mSize;
+    private final int mWindowSize;
+
+    private MappedFileReader(final RandomAccessFile file, final int windowSize) throws IOException {
+        mFile = file;
+        mChannel = file.getChannel();
+        mSize = mChannel.size();
+        mWindowSize = windowSize;
+    }
+
+    /**
+     * Open the reader with default size of window.
+     *
+     * @param file The file.
+     * @return the reader, {@code null} if fail
+     */
+    public static MappedFileReader open(final File file) {
+        return open(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open the reader.
+     *
+     * @param file       The file.
+     * @param windowSize The size of window.
+     * @return the reader, {@code null} if fail
+     */
+    public static MappedFileReader open(final File file, final int windowSize) {
+        if (file == null || !file.isFile() || windowSize <= 0) return null;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            return new MappedFileReader(raf, windowSize);
+        } catch (IOException e) {
+            e.printStackTrace();
+            CloseUtils.closeIO(raf);
+            return null;
+        }
+    }
+
+    /**
+     * Return the size of file when the reader was opened.
+     *
+     * @return the size of file
+     */
+    public long size() {
+        return mSize;
+    }
+
+    /**
+     * Return the size of window.
+     *
+     * @return the size of window
+     */
+    public int getWindowSize() {
+        return mWindowSize;
+    }
+
+    /**
+     * Return the number of windows.
+     *
+     * @return the number of windows
+     */
+    public long getWindowCount() {
+        return (mSize + mWindowSize - 1) / mWindowSize;
+    }
+
+    /**
+     * Return the window.
+     *
+     * @param index The index of window.
+     * @return the read-only window, {@code null} if fail
+     */
+    public ByteBuffer getWindow(final long index) {
+        if (index < 0 || index >= getWindowCount()) return null;
+        long position = index * mWindowSize;
+        return map(position, (int) Math.min(mWindowSize, mSize - position));
+    }
+
+    /**
+     * Return the region of file.
+     *
+     * @param position The position of region.
+     * @param length   The length of region.
+     * @return the read-only region, {@code null} if fail
+     */
+    public ByteBuffer map(final long position, final int length) {
+        if (position < 0 || length < 0 || position + length > mSize) return null;
+        try {
+            return mChannel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Visit every window in order.
+     *
+     * @param listener The window listener.
+     * @return {@code true}: every window was visited<br>{@code false}: stopped or fail
+     */
+    public boolean forEachWindow(final OnWindowListener listener) {
+        if (listener == null) return false;
+        long count = getWindowCount();
+        for (long i = 0; i < count; ++i) {
+            ByteBuffer window = getWindow(i);
+            if (window == null || !listener.onWindow(window, i * mWindowSize)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        CloseUtils.closeIO(mChannel, mFile);
+    }
+
+    public interface OnWindowListener {
+        /**
+         * Called for every window.
+         *
+         * @param window   The read-only window.
+         * @param position The position of window in file.
+         * @return {@code true}: continue<br>{@code false}: stop
+         */
+        boolean onWindow(ByteBuffer window, long position);
+    }
+}
@@ -0,0 +1,161 @@
+package cn.windylee.utilcode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <pre>
+ *     desc  : append records into a mapped segment of file
+ * </pre>
+ * <p>The writer maps a segment of {@code segmentSize} bytes ahead of its write cursor and copies
+ * records straight into the mapping. When the segment is full, the next segment is mapped at the
+ * cursor, which grows the file in large increments instead of once per record. On close the
+ * file is truncated to the bytes actually written.</p>
+ * <p>The writer is not thread-safe. Some platforms, e.g. Windows, refuse to truncate a file
+ * while a mapping of it is still reachable, then the file keeps its pre-allocated tail.</p>
+ */
+public final class MappedSegmentWriter implements Closeable {
+
+    /**
+     * The default size of segment, 64 MB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final int mSegmentSize;
+    private final boolean mIsForce;
+    private MappedByteBuffer mSegment;
+    private long mPosition;
+    private boolean mClosed;
+
+    private MappedSegmentWriter(final RandomAccessFile file,
+                                final int segmentSize,
+                                final boolean isForce,
+                                final long position) {
+        mFile = file;
+        mChannel = file.getChannel();
+        mSegmentSize = segmentSize;
+        mIsForce = isForce;
+        mPosition = position;
+    }
+
+    /**
+     * Open the writer with default size of segment.
+     *
+     * @param file    The file.
+     * @param append  True to append, false otherwise.
+     * @param isForce True to force the mapping to the storage device on flush and close, false otherwise.
+     * @return the writer, {@code null} if fail
+     */
+    public static MappedSegmentWriter open(final File file, final boolean append, final boolean isForce) {
+        return open(file, append, isForce, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open the writer.
+     *
+     * @param file        The file.
+     * @param append      True to append, false otherwise.
+     * @param isForce     True to force the mapping to the storage device on flush and close, false otherwise.
+     * @param segmentSize The size of segment mapped at once.
+     * @return the writer, {@code null} if fail
+     */
+    public static MappedSegmentWriter open(final File file,
+                                           final boolean append,
+                                           final boolean isForce,
+                                           final int segmentSize) {
+        if (segmentSize <= 0 || !FileUtils.createOrExistsFile(file)) return null;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            if (!append) raf.setLength(0);
+            return new MappedSegmentWriter(raf, segmentSize, isForce, raf.length());
+        } catch (IOException e) {
+            e.printStackTrace();
+            CloseUtils.closeIO(raf);
+            return null;
+        }
+    }
+
+    /**
+     * Append the bytes.
+     *
+     * @param bytes The bytes.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public boolean write(final byte[] bytes) {
+        return bytes != null && write(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Append the remaining bytes of buffer.
+     *
+     * @param buffer The buffer.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public boolean write(final ByteBuffer buffer) {
+        if (buffer == null || mClosed) return false;
+        try {
+            while (buffer.hasRemaining()) {
+                if (mSegment == null || !mSegment.hasRemaining()) {
+                    mapNextSegment();
+                }
+                int len = Math.min(buffer.remaining(), mSegment.remaining());
+                int limit = buffer.limit();
+                buffer.limit(buffer.position() + len);
+                mSegment.put(buffer);
+                buffer.limit(limit);
+                mPosition += len;
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Return the position of write cursor, which is the length of written file.
+     *
+     * @return the position of write cursor
+     */
+    public long position() {
+        return mPosition;
+    }
+
+    /**
+     * Force the written bytes to the storage device if the writer forces.
+     */
+    public void flush() {
+        if (mIsForce && mSegment != null) mSegment.force();
+    }
+
+    /**
+     * Flush, then truncate the file to the position of write cursor and close it.
+     */
+    @Override
+    public void close() {
+        if (mClosed) return;
+        mClosed = true;
+        flush();
+        mSegment = null;
+        try {
+            mChannel.truncate(mPosition);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            CloseUtils.closeIO(mChannel, mFile);
+        }
+    }
+
+    private void mapNextSegment() throws IOException {
+        flush();
+        mSegment = mChannel.map(FileChannel.MapMode.READ_WRITE, mPosition, mSegmentSize);
+    }
+}
@@ -0,0 +1,287 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     desc  : delete directory trees in parallel
+ * </pre>
+ * <p>Every directory is read by a task on a {@link ForkJoinPool}, which deletes its files in
+ * chunks and forks a task per subdirectory, then deletes the directory itself once all of them
+ * succeeded, so directories are removed bottom-up. A failure doesn't stop the deletion: it is
+ * collected into the result, and only the directories above it are kept.</p>
+ * <p>Symbolic links are deleted themselves and never followed, so nothing outside the tree is
+ * deleted. Counters of the result are updated while deleting, see {@link #getProgress()}.</p>
+ */
+public final class ParallelDeleter {
+
+    private static final int FILE_CHUNK_SIZE = 256;
+
+    private final int mParallelism;
+    private volatile Result mProgress;
+
+    /**
+     * Create a deleter.
+     *
+     * @param parallelism The number of threads which delete.
+     */
+    public ParallelDeleter(final int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism <= 0: " + parallelism);
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Delete the directory and all in it.
+     *
+     * @param dir The directory.
+     * @return the result of deletion, {@code null} if it isn't a directory
+     */
+    public Result deleteDir(final File dir) {
+        return delete(dir, null, true);
+    }
+
+    /**
+     * Delete all in directory that satisfy the filter, a directory with all in it.
+     *
+     * @param dir    The directory.
+     * @param filter The filter of files and directories in directory.
+     * @return the result of deletion, {@code null} if it isn't a directory
+     */
+    public Result deleteFilesInDirWithFilter(final File dir, final FileFilter filter) {
+        if (filter == null) return null;
+        return delete(dir, filter, false);
+    }
+
+    /**
+     * Return the live result of the running deletion, or the result of the last one.
+     *
+     * @return the live result, {@code null} if nothing has been deleted
+     */
+    public Result getProgress() {
+        return mProgress;
+    }
+
+    private Result delete(final File dir, final FileFilter filter, final boolean isDeleteRoot) {
+        if (dir == null) return null;
+        long startTime = System.currentTimeMillis();
+        Result result = new Result();
+        mProgress = result;
+        // dir doesn't exist then nothing to delete
+        if (!dir.exists()) {
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+            return result;
+        }
+        if (!dir.isDirectory()) return null;
+        if (isDeleteRoot && Files.isSymbolicLink(dir.toPath())) {// delete the link, not the tree it points to
+            new FileTask(Collections.singletonList(dir.toPath()), result).compute();
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+            return result;
+        }
+        ForkJoinPool pool = new ForkJoinPool(mParallelism);
+        try {
+            pool.invoke(new DirTask(dir.toPath(), filter, isDeleteRoot, result));
+        } finally {
+            pool.shutdown();
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+        }
+        return result;
+    }
+
+    private static BasicFileAttributes readAttributes(final Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * Delete the directory, returning whether it is gone or, for the root of a filtered
+     * deletion, whether all accepted entries are gone.
+     */
+    private static final class DirTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final FileFilter filter;
+        private final boolean isDeleteSelf;
+        private final Result result;
+
+        private DirTask(final Path dir, final FileFilter filter, final boolean isDeleteSelf, final Result result) {
+            this.dir = dir;
+            this.filter = filter;
+            this.isDeleteSelf = isDeleteSelf;
+            this.result = result;
+        }
+
+        @Override
+        protected Boolean compute() {
+            List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+            List<Path> chunk = new ArrayList<>();
+            boolean success = true;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    if (filter != null && !filter.accept(path.toFile())) continue;
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = readAttributes(path);
+                    } catch (NoSuchFileException e) {// deleted by someone else
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        tasks.add(new DirTask(path, null, true, result).fork());
+                    } else {
+                        chunk.add(path);
+                        if (chunk.size() == FILE_CHUNK_SIZE) {
+                            tasks.add(new FileTask(chunk, result).fork());
+                            chunk = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                result.failures.add(dir.toFile());
+                success = false;
+            }
+            if (!chunk.isEmpty() && !new FileTask(chunk, result).compute()) success = false;
+            for (ForkJoinTask<Boolean> task : tasks) {
+                if (!task.join()) success = false;
+            }
+            // a failure below keeps the directory, which isn't empty, without failing it again
+            if (!success || !isDeleteSelf) return success;
+            try {
+                Files.delete(dir);
+                result.dirCount.incrementAndGet();
+                return true;
+            } catch (NoSuchFileException e) {
+                return true;
+            } catch (IOException e) {
+                result.failures.add(dir.toFile());
+                return false;
+            }
+        }
+    }
+
+    private static final class FileTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final Result result;
+
+        private FileTask(final List<Path> files, final Result result) {
+            this.files = files;
+            this.result = result;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean success = true;
+            for (Path file : files) {
+                try {
+                    long length = readAttributes(file).size();
+                    Files.delete(file);
+                    result.fileCount.incrementAndGet();
+                    result.byteCount.addAndGet(length);
+                } catch (NoSuchFileException e) {// deleted by someone else
+                } catch (IOException e) {
+                    result.failures.add(file.toFile());
+                    success = false;
+                }
+            }
+            return success;
+        }
+    }
+
+    /**
+     * The result of deleting in parallel.
+     */
+    public static final class Result {
+
+        private final AtomicLong fileCount = new AtomicLong();
+        private final AtomicLong dirCount = new AtomicLong();
+        private final AtomicLong byteCount = new AtomicLong();
+        private final Queue<File> failures = new ConcurrentLinkedQueue<>();
+        private volatile long elapsedMillis;
+
+        private Result() {
+        }
+
+        /**
+         * Return the number of deleted files, including symbolic links.
+         *
+         * @return the number of deleted files
+         */
+        public long getFileCount() {
+            return fileCount.get();
+        }
+
+        /**
+         * Return the number of deleted directories.
+         *
+         * @return the number of deleted directories
+         */
+        public long getDirCount() {
+            return dirCount.get();
+        }
+
+        /**
+         * Return the number of bytes of deleted files.
+         *
+         * @return the number of bytes of deleted files
+         */
+        public long getByteCount() {
+            return byteCount.get();
+        }
+
+        /**
+         * Return the files or directories which couldn't be deleted or read.
+         *
+         * @return the files or directories which couldn't be deleted or read
+         */
+        public List<File> getFailures() {
+            return new ArrayList<>(failures);
+        }
+
+        /**
+         * Return the elapsed time in milliseconds, 0 while deleting.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Return whether nothing failed.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Result{files=" + getFileCount()
+                    + ", dirs=" + getDirCount()
+                    + ", bytes=" + getByteCount()
+                    + ", failures=" + failures.size()
+                    + ", elapsedMillis=" + elapsedMillis + "}";
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cn.windylee.utilcode;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * <pre>
+ *     desc  : scan file by byte ranges in parallel
+ * </pre>
+ * <p>The file is split into ranges which end right after a {@code '\n'}, so no line is cut in
+ * two unless a single line is longer than 2 GB. Every range is mapped read-only and scanned on a
+ * {@link ForkJoinPool}, then the results are merged in file order by the combiner.</p>
+ */
+public final class ParallelFileScanner {
+
+    /**
+     * The default size of range, 16 MB.
+     */
+    public static final int DEFAULT_RANGE_SIZE = 16 * 1024 * 1024;
+
+    private static final int PROBE_SIZE = 8192;
+
+    private ParallelFileScanner() {
+        throw new UnsupportedOperationException("u can't instantiate me...");
+    }
+
+    /**
+     * Scan the file in parallel with default size of range.
+     *
+     * @param file        The file.
+     * @param parallelism The number of threads which scan ranges.
+     * @param scanner     The range scanner.
+     * @param combiner    The combiner of results.
+     * @param <R>         The type of result.
+     * @return the combined result, {@code null} if fail or the file is empty
+     */
+    public static <R> R scan(final File file,
+                             final int parallelism,
+                             final RangeScanner<R> scanner,
+                             final BinaryOperator<R> combiner) {
+        return scan(file, DEFAULT_RANGE_SIZE, parallelism, scanner, combiner);
+    }
+
+    /**
+     * Scan the file in parallel.
+     *
+     * @param file        The file.
+     * @param rangeSize   The size of range before aligning to line boundary.
+     * @param parallelism The number of threads which scan ranges.
+     * @param scanner     The range scanner.
+     * @param combiner    The combiner of results.
+     * @param <R>         The type of result.
+     * @return the combined result, {@code null} if fail or the file is empty
+     */
+    public static <R> R scan(final File file,
+                             final int rangeSize,
+                             final int parallelism,
+                             final RangeScanner<R> scanner,
+                             final BinaryOperator<R> combiner) {
+        if (rangeSize <= 0 || parallelism <= 0 || scanner == null || combiner == null) return null;
+        MappedFileReader reader = MappedFileReader.open(file);
+        if (reader == null) return null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<long[]> ranges = splitRanges(reader, rangeSize);
+            if (ranges == null || ranges.isEmpty()) return null;
+            return pool.invoke(new ScanTask<>(reader, ranges, 0, ranges.size(), scanner, combiner));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            pool.shutdown();
+            reader.close();
+        }
+    }
+
+    private static List<long[]> splitRanges(final MappedFileReader reader, final int rangeSize) {
+        long size = reader.size();
+        List<long[]> ranges = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + rangeSize, size);
+            long limit = Math.min(start + Integer.MAX_VALUE, size);
+            // move the end forward to just after the next '\n'
+            while (end < limit) {
+                ByteBuffer probe = reader.map(end - 1, (int) Math.min(PROBE_SIZE, limit - end + 1));
+                if (probe == null) return null;
+                int i = 0;
+                int len = probe.remaining();
+                while (i < len && probe.get(i) != '\n') ++i;
+                if (i < len) {
+                    end += i;
+                    break;
+                }
+                end += len;
+            }
+            end = Math.min(end, limit);
+            ranges.add(new long[]{start, end - start});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static final class ScanTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MappedFileReader reader;
+        private final List<long[]> ranges;
+        private final int from;
+        private final int to;
+        private final RangeScanner<R> scanner;
+        private final BinaryOperator<R> combiner;
+
+        private ScanTask(final MappedFileReader reader,
+                         final List<long[]> ranges,
+                         final int from,
+                         final int to,
+                         final RangeScanner<R> scanner,
+                         final BinaryOperator<R> combiner) {
+            this.reader = reader;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.scanner = scanner;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                long[] range = ranges.get(from);
+                ByteBuffer buffer = reader.map(range[0], (int) range[1]);
+                if (buffer == null) throw new IllegalStateException("map range failed at " + range[0]);
+                return scanner.scan(buffer, range[0]);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask<R> left = new ScanTask<>(reader, ranges, from, mid, scanner, combiner);
+            ScanTask<R> right = new ScanTask<>(reader, ranges, mid, to, scanner, combiner);
+            left.fork();
+            R rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+
+    public interface RangeScanner<R> {
+        /**
+         * Called for every range, possibly from several threads at once.
+         *
+         * @param range    The read-only range.
+         * @param position The position of range in file.
+         * @return the result of range
+         */
+        R scan(ByteBuffer range, long position);
+    }
+}